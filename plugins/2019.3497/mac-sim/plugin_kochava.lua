@@ -19,6 +19,72 @@ local function showWarning(functionName)
     print( functionName .. "WARNING: The Kochava plugin is only supported on Android, iOS and tvOS devices. Please build for device" );
 end
 
+-- BEGIN STANDARD PROPERTY TYPES (generated from src/android/plugin/schema/standard_events.schema, do not edit)
+local standardPropertyTypes = {
+    action = "string",
+    adCampaignId = "string",
+    adCampaignName = "string",
+    adDeviceType = "string",
+    adGroupId = "string",
+    adGroupName = "string",
+    adMediationName = "string",
+    adNetworkName = "string",
+    adPlacement = "string",
+    adSize = "string",
+    adType = "string",
+    background = "boolean",
+    checkoutAsGuest = "boolean",
+    completed = "boolean",
+    contentId = "string",
+    contentType = "string",
+    currency = "string",
+    date = "string",
+    description = "string",
+    destination = "string",
+    durationTimeInterval = "number",
+    endDate = "string",
+    itemAddedFrom = "string",
+    level = "string",
+    maxRating = "number",
+    name = "string",
+    orderId = "string",
+    origin = "string",
+    payload = "table",
+    price = "number",
+    quantity = "number",
+    ratingValue = "number",
+    receiptId = "string",
+    receiptData = "string",
+    receiptDataSignature = "string",
+    referralFrom = "string",
+    registrationMethod = "string",
+    results = "string",
+    score = "string",
+    searchTerm = "string",
+    spatialX = "number",
+    spatialY = "number",
+    spatialZ = "number",
+    startDate = "string",
+    success = "string",
+    userId = "string",
+    userName = "string",
+    validated = "string"
+}
+-- END STANDARD PROPERTY TYPES
+
+-- report the property type errors a device would, so they show up before building
+local function checkProperties(functionName, options, path)
+    if type(options) ~= "table" then
+        return
+    end
+    for key, value in pairs(options) do
+        local expected = standardPropertyTypes[key]
+        if expected and type(value) ~= expected then
+            print( functionName .. "ERROR: " .. path .. key .. " (" .. expected .. ") expected, got " .. type(value) )
+        end
+    end
+end
+
 function lib.getAttributionData()
     showWarning("kochava.getAttributionData()")
 end
@@ -35,8 +101,38 @@ function lib.logDeeplinkEvent()
     showWarning("kochava.logDeeplinkEvent()")
 end
 
-function lib.logEvent()
+function lib.logEvent(eventType, options)
     showWarning("kochava.logEvent()")
+    checkProperties("kochava.logEvent(), ", options, "options.")
+end
+
+function lib.logEvents(events)
+    showWarning("kochava.logEvents()")
+    if type(events) == "table" then
+        for i, event in ipairs(events) do
+            if type(event) == "table" then
+                checkProperties("kochava.logEvents(), ", event.options, "events[" .. i .. "].options.")
+            end
+        end
+    end
+end
+
+function lib.prepareEvent(eventType, baseOptions)
+    showWarning("kochava.prepareEvent()")
+    checkProperties("kochava.prepareEvent(), ", baseOptions, "options.")
+end
+
+function lib.logPreparedEvent(handle, options)
+    showWarning("kochava.logPreparedEvent()")
+    checkProperties("kochava.logPreparedEvent(), ", options, "options.")
+end
+
+function lib.releasePreparedEvent()
+    showWarning("kochava.releasePreparedEvent()")
+end
+
+function lib.increment()
+    showWarning("kochava.increment()")
 end
 
 function lib.logCustomEvent() -- for backwards compatibility only (use logEvent)
@@ -51,6 +147,26 @@ function lib.setIdentityLink()
     showWarning("kochava.setIdentityLink()")
 end
 
+function lib.getQueueStats()
+    showWarning("kochava.getQueueStats()")
+    return { depth = 0, maxDepth = 0, posted = 0, drains = 0, preInitDepth = 0, preInitBytes = 0, preInitOverflow = 0, preInitOverflowBytes = 0 }
+end
+
+function lib.getStartupTimings()
+    showWarning("kochava.getStartupTimings()")
+    return {}
+end
+
+function lib.getStats()
+    showWarning("kochava.getStats()")
+    return { calls = {}, validationFailures = {}, sent = {}, dropped = {}, callbacks = 0, latency = {} }
+end
+
+function lib.getLogs()
+    showWarning("kochava.getLogs()")
+    return {}
+end
+
 -------------------------------------------------------------------------------
 -- END
 -------------------------------------------------------------------------------
@@ -0,0 +1,84 @@
+//
+// DateValidatorBenchmark.java
+// Kochava Plugin
+//
+// Copyright (c) 2016 CoronaLabs inc. All rights reserved.
+//
+
+// @formatter:off
+
+package plugin.kochava;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.text.DateFormat;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of date property validation, against the non-lenient {@code SimpleDateFormat} it replaces.
+ * <p>
+ * Each operation validates the dates of the sample app's event, one valid and one out of range, so both outcomes
+ * are measured. The SimpleDateFormat variant creates its format per call, as the plugin did, since a shared
+ * instance is not thread-safe.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DateValidatorBenchmark
+{
+  private String validDate = "2023-03-15";
+  private String invalidDate = "2023-02-29";
+
+  // DateValidator.isValid(), the canonical form is checked without allocating
+  @Benchmark
+  public int dateValidator() {
+    int valid = 0;
+    if (DateValidator.isValid(validDate)) {
+      valid++;
+    }
+    if (DateValidator.isValid(invalidDate)) {
+      valid++;
+    }
+    return valid;
+  }
+
+  // new SimpleDateFormat("yyyy-MM-dd") per date, non-lenient
+  @Benchmark
+  public int simpleDateFormat() {
+    int valid = 0;
+    if (isValidSimpleDateFormat(validDate)) {
+      valid++;
+    }
+    if (isValidSimpleDateFormat(invalidDate)) {
+      valid++;
+    }
+    return valid;
+  }
+
+  private static boolean isValidSimpleDateFormat(String date) {
+    DateFormat format = new SimpleDateFormat("yyyy-MM-dd", Locale.ENGLISH);
+    format.setLenient(false);
+    try {
+      format.parse(date);
+    }
+    catch (ParseException e) {
+      return false;
+    }
+
+    return true;
+  }
+}
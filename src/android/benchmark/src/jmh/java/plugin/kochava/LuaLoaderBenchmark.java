@@ -0,0 +1,219 @@
+//
+// LuaLoaderBenchmark.java
+// Kochava Plugin
+//
+// Copyright (c) 2016 CoronaLabs inc. All rights reserved.
+//
+
+// @formatter:off
+
+package plugin.kochava;
+
+import com.ansca.corona.CoronaRuntime;
+import com.kochava.tracker.Tracker;
+import com.naef.jnlua.LuaState;
+import com.naef.jnlua.LuaState.Table;
+import com.naef.jnlua.NamedJavaFunction;
+
+import android.os.Looper;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of the plugin's Lua functions with the payloads of the sample app.
+ * <p>
+ * With {@code dispatch=inline}, each operation is a complete call from Lua: argument decoding and validation, the
+ * command run by the tracker thread (inline with the stand-in handler), the call into the stand-in Kochava SDK and
+ * the Lua event dispatched back to the listener. With {@code dispatch=queued}, the tracker commands and Lua events
+ * are queued and run after each call, outside the measurement, so the operation is only the cost on the game
+ * thread. Run with the gc profiler to get the allocation rate per call:
+ * <pre>
+ *   ./gradlew -Pbenchmarks :benchmark:jmh
+ * </pre>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LuaLoaderBenchmark
+{
+  // receipt of the sample app's Google Play purchase
+  private static final String RECEIPT_DATA = "{\"orderId\":\"12999763169054705758.1370659711695372\","
+    + "\"packageName\":\"com.swipeware.freemium.bigfatgoalie\","
+    + "\"productId\":\"com.swipeware.freemium.bigfatgoalie.lifetimepass\",\"purchaseTime\":1375685100000,"
+    + "\"purchaseState\":0,\"purchaseToken\":\"tqhfxyywyhzwnbgitqyskmmv.AO-J1OxU2eO3XVD_KUkvEK3NW8Wh1WcP9N6Oc"
+    + "jTNIVoJ14sk8hSo1UOl5BmWhls6WwA6_fVTaVVy2QowWFugtmRnd-7wTr46wBA-XGFx2oB8Rd0lFDtiRBPfdT6B4srHpldf4IsONvW-K"
+    + "jZP8eLuamp7Cr9hhRc6CqnNT6ol-pRH16vSxmW3aBRkJZbrSWC9YX9y_SppNgbJ\"}";
+  private static final String RECEIPT_DATA_SIGNATURE = "iS8qp3hIJ8d3wJQWiWu3WbKpTzBRQhbdz7EV+mNLgjTB1OjqTqW5J30cX"
+    + "X71UQiYRTCc699Ffd+tbvLxwot8I9+n0W1j/d8piu+ekW0jRSQPiDHnkdWOJoTbkoneuBhT6bt0ev4uW4F4Fh/UoKKJtkJd+pzPWT2V1p"
+    + "FTKvbmyj3HkTI8cFo35Iw9lE2pUjXO6ZLJGvPcHoqCLeV+F3rd6K0C3uoKP2cSK8xreEGURqhIYZkQU88FMWsIsKZBQ32sVMNW6Vx3dW1"
+    + "0DeyXDUEvEdk04bcKi1lEnfht7p4quIJKZ7zNF3jE/529WJC6P4QcPLqO+qLl03ZGNpCEIMUXQA==";
+
+  private static final int PURCHASE_BURST_SIZE = 10;
+
+  // inline: posted work runs within the call, queued: posted work runs after it, see android.os.Looper
+  @Param({"inline", "queued"})
+  public String dispatch;
+
+  private LuaState L;
+
+  private NamedJavaFunction logEvent;
+  private NamedJavaFunction logEvents;
+  private NamedJavaFunction logCustomEvent;
+  private NamedJavaFunction setIdentityLink;
+  private NamedJavaFunction getVersion;
+
+  private Table playerDied;
+  private Table purchase;
+  private Table levelComplete;
+  private Table purchaseBurst;
+  private Table identityLinks;
+
+  @Setup
+  public void setup() {
+    L = new LuaState();
+
+    // require("plugin.kochava")
+    LuaLoader loader = new LuaLoader();
+    L.pushString("plugin.kochava");
+    loader.invoke(L);
+    L.setTop(0);
+    loader.onLoaded(new CoronaRuntime(L));
+
+    logEvent = L.getFunction("logEvent");
+    logEvents = L.getFunction("logEvents");
+    logCustomEvent = L.getFunction("logCustomEvent");
+    setIdentityLink = L.getFunction("setIdentityLink");
+    getVersion = L.getFunction("getVersion");
+
+    // commands are sent directly once the tracker has started
+    Tracker.getInstance().startWithAppGuid(null, "kocorona-plugin-sample-android570b199f380e5");
+
+    playerDied = Table.of(
+      "level", "1",
+      "score", "23451",
+      "mode", "expert",
+      "boss", "hugo",
+      "weaponEmpty", true,
+      "durationTimeInterval", 652,
+      "timeDelta", 146
+    );
+
+    purchase = Table.of(
+      "name", "Bonus Pack",
+      "receiptData", RECEIPT_DATA,
+      "receiptDataSignature", RECEIPT_DATA_SIGNATURE
+    );
+
+    // restored purchases delivered in one store callback
+    purchaseBurst = new Table();
+    for (int i = 1; i <= PURCHASE_BURST_SIZE; i++) {
+      purchaseBurst.put((double)i, Table.of("eventType", "purchase", "options", purchase));
+    }
+
+    // 1-based keys are numbers in Lua
+    levelComplete = Table.of(
+      "level", "12",
+      "payload", Table.of(
+        "stars", 3,
+        "perfect", false,
+        "times", Table.of(1.0, 41.2, 2.0, 38.7, 3.0, 40.1),
+        "loadout", Table.of(
+          "weapon", "bow",
+          "perks", Table.of(1.0, "swift", 2.0, "keen")
+        ),
+        "bosses", Table.of(
+          1.0, Table.of("name", "hugo", "hits", 14),
+          2.0, Table.of("name", "olga", "hits", 9)
+        )
+      )
+    );
+
+    identityLinks = Table.of("mySpecialID", "1234567890");
+
+    Looper.setQueued("queued".equals(dispatch));
+  }
+
+  // run the work queued by the call, so queues do not grow across invocations
+  @TearDown(Level.Invocation)
+  public void runQueued() {
+    Looper.runQueued();
+  }
+
+  // kochava.logEvent("playerDied", {...})
+  @Benchmark
+  public int logEventPlayerDied() {
+    L.pushString("playerDied");
+    L.push(playerDied);
+    return call(logEvent);
+  }
+
+  // kochava.logEvent("purchase", {name=..., receiptData=..., receiptDataSignature=...})
+  @Benchmark
+  public int logEventPurchase() {
+    L.pushString("purchase");
+    L.push(purchase);
+    return call(logEvent);
+  }
+
+  // kochava.logEvents({{eventType="purchase", options={...}}, ...}) with PURCHASE_BURST_SIZE receipts,
+  // the gc profiler's alloc.rate.norm divided by PURCHASE_BURST_SIZE is the heap allocated per receipt
+  @Benchmark
+  public int logEventsPurchaseBurst() {
+    L.push(purchaseBurst);
+    return call(logEvents);
+  }
+
+  // kochava.logEvent("levelComplete", {level=..., payload={...}}) with nested tables and arrays
+  @Benchmark
+  public int logEventPayload() {
+    L.pushString("levelComplete");
+    L.push(levelComplete);
+    return call(logEvent);
+  }
+
+  // kochava.logCustomEvent("Bonus Pack", "purchase", receiptData, receiptDataSignature)
+  @Benchmark
+  public int logCustomEventPurchase() {
+    L.pushString("Bonus Pack");
+    L.pushString("purchase");
+    L.pushString(RECEIPT_DATA);
+    L.pushString(RECEIPT_DATA_SIGNATURE);
+    return call(logCustomEvent);
+  }
+
+  // kochava.setIdentityLink({mySpecialID="1234567890"})
+  @Benchmark
+  public int setIdentityLink() {
+    L.push(identityLinks);
+    return call(setIdentityLink);
+  }
+
+  // kochava.getVersion(), which dispatches its event through the map-based dispatchLuaEvent()
+  @Benchmark
+  public int getVersion() {
+    return call(getVersion);
+  }
+
+  private int call(NamedJavaFunction function) {
+    int results = function.invoke(L);
+    L.setTop(0);
+    return results;
+  }
+}
@@ -0,0 +1,26 @@
+//
+// Context.java
+// Kochava Plugin
+//
+// Copyright (c) 2016 CoronaLabs inc. All rights reserved.
+//
+
+// @formatter:off
+
+package android.content;
+
+import java.io.File;
+
+/**
+ * Benchmark stand-in for an Android context, with its files directory in the temporary directory.
+ */
+public class Context
+{
+  public File getFilesDir() {
+    return new File(System.getProperty("java.io.tmpdir"));
+  }
+
+  public Context getApplicationContext() {
+    return this;
+  }
+}
@@ -0,0 +1,25 @@
+//
+// Build.java
+// Kochava Plugin
+//
+// Copyright (c) 2016 CoronaLabs inc. All rights reserved.
+//
+
+// @formatter:off
+
+package android.os;
+
+/**
+ * Benchmark stand-in for the Android build constants, reporting the plugin's target SDK.
+ */
+public class Build
+{
+  public static class VERSION {
+    public static final int SDK_INT = 29;
+  }
+
+  public static class VERSION_CODES {
+    public static final int JELLY_BEAN_MR2 = 18;
+    public static final int KITKAT = 19;
+  }
+}
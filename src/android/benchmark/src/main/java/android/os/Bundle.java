@@ -0,0 +1,66 @@
+//
+// Bundle.java
+// Kochava Plugin
+//
+// Copyright (c) 2016 CoronaLabs inc. All rights reserved.
+//
+
+// @formatter:off
+
+package android.os;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Benchmark stand-in for an Android bundle, backed by a hash map like the real one.
+ */
+public final class Bundle implements Parcelable
+{
+  private final Map<String, Object> values = new HashMap<>();
+
+  public int size() {
+    return values.size();
+  }
+
+  public Set<String> keySet() {
+    return values.keySet();
+  }
+
+  public Object get(String key) {
+    return values.get(key);
+  }
+
+  public void putString(String key, String value) {
+    values.put(key, value);
+  }
+
+  public void putDouble(String key, double value) {
+    values.put(key, value);
+  }
+
+  public void putBoolean(String key, boolean value) {
+    values.put(key, value);
+  }
+
+  public void putBundle(String key, Bundle value) {
+    values.put(key, value);
+  }
+
+  public void putStringArray(String key, String[] value) {
+    values.put(key, value);
+  }
+
+  public void putDoubleArray(String key, double[] value) {
+    values.put(key, value);
+  }
+
+  public void putBooleanArray(String key, boolean[] value) {
+    values.put(key, value);
+  }
+
+  public void putParcelableArray(String key, Parcelable[] value) {
+    values.put(key, value);
+  }
+}
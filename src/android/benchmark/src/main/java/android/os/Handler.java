@@ -0,0 +1,41 @@
+//
+// Handler.java
+// Kochava Plugin
+//
+// Copyright (c) 2016 CoronaLabs inc. All rights reserved.
+//
+
+// @formatter:off
+
+package android.os;
+
+/**
+ * Benchmark stand-in for an Android handler.
+ * <p>
+ * Posted runnables are run synchronously, so a benchmark operation includes the work done on the tracker thread,
+ * unless the benchmark queues them with {@link Looper#setQueued}. Delayed runnables are never run.
+ */
+public class Handler
+{
+  private final Looper looper;
+
+  public Handler(Looper looper) {
+    this.looper = looper;
+  }
+
+  public Looper getLooper() {
+    return looper;
+  }
+
+  public boolean post(Runnable runnable) {
+    Looper.post(runnable);
+    return true;
+  }
+
+  public boolean postDelayed(Runnable runnable, long delayMillis) {
+    return true;
+  }
+
+  public void removeCallbacks(Runnable runnable) {
+  }
+}
@@ -0,0 +1,34 @@
+//
+// HandlerThread.java
+// Kochava Plugin
+//
+// Copyright (c) 2016 CoronaLabs inc. All rights reserved.
+//
+
+// @formatter:off
+
+package android.os;
+
+/**
+ * Benchmark stand-in for an Android handler thread. The thread is never started; its handlers run inline.
+ */
+public class HandlerThread extends Thread
+{
+  private final Looper looper = new Looper();
+
+  public HandlerThread(String name, int priority) {
+    super(name);
+  }
+
+  @Override
+  public synchronized void start() {
+  }
+
+  public Looper getLooper() {
+    return looper;
+  }
+
+  public boolean quit() {
+    return true;
+  }
+}
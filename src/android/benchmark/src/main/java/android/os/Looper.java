@@ -0,0 +1,54 @@
+//
+// Looper.java
+// Kochava Plugin
+//
+// Copyright (c) 2016 CoronaLabs inc. All rights reserved.
+//
+
+// @formatter:off
+
+package android.os;
+
+import java.util.ArrayDeque;
+
+/**
+ * Benchmark stand-in for an Android looper.
+ * <p>
+ * Work posted to a handler or the Corona task dispatcher is run inline by default. Once {@link #setQueued} is
+ * called it is queued instead, in one queue for all loopers, and run by {@link #runQueued}, so a benchmark can
+ * leave it out of the measured call.
+ */
+public class Looper
+{
+  private static final Looper mainLooper = new Looper();
+
+  private static final ArrayDeque<Runnable> queue = new ArrayDeque<Runnable>();
+  private static boolean queued = false;
+
+  public static Looper getMainLooper() {
+    return mainLooper;
+  }
+
+  // queue posted work instead of running it inline
+  public static void setQueued(boolean queued) {
+    Looper.queued = queued;
+  }
+
+  // run the queued work, including work posted while it runs
+  public static void runQueued() {
+    Runnable runnable;
+    while ((runnable = queue.poll()) != null) {
+      runnable.run();
+    }
+  }
+
+  // run or queue work posted from any thread of the benchmark
+  public static void post(Runnable runnable) {
+    if (queued) {
+      queue.add(runnable);
+    }
+    else {
+      runnable.run();
+    }
+  }
+}
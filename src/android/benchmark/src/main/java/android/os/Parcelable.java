@@ -0,0 +1,17 @@
+//
+// Parcelable.java
+// Kochava Plugin
+//
+// Copyright (c) 2016 CoronaLabs inc. All rights reserved.
+//
+
+// @formatter:off
+
+package android.os;
+
+/**
+ * Benchmark stand-in for the Android parcelable marker.
+ */
+public interface Parcelable
+{
+}
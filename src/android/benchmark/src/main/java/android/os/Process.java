@@ -0,0 +1,18 @@
+//
+// Process.java
+// Kochava Plugin
+//
+// Copyright (c) 2016 CoronaLabs inc. All rights reserved.
+//
+
+// @formatter:off
+
+package android.os;
+
+/**
+ * Benchmark stand-in for the Android thread priorities.
+ */
+public class Process
+{
+  public static final int THREAD_PRIORITY_BACKGROUND = 10;
+}
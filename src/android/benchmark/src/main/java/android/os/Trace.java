@@ -0,0 +1,22 @@
+//
+// Trace.java
+// Kochava Plugin
+//
+// Copyright (c) 2016 CoronaLabs inc. All rights reserved.
+//
+
+// @formatter:off
+
+package android.os;
+
+/**
+ * Benchmark stand-in for Android trace sections, which are ignored.
+ */
+public class Trace
+{
+  public static void beginSection(String sectionName) {
+  }
+
+  public static void endSection() {
+  }
+}
@@ -0,0 +1,17 @@
+//
+// EventLog.java
+// Kochava Plugin
+//
+// Copyright (c) 2016 CoronaLabs inc. All rights reserved.
+//
+
+// @formatter:off
+
+package android.util;
+
+/**
+ * Benchmark stand-in for the Android event log.
+ */
+public class EventLog
+{
+}
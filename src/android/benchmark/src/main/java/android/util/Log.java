@@ -0,0 +1,32 @@
+//
+// Log.java
+// Kochava Plugin
+//
+// Copyright (c) 2016 CoronaLabs inc. All rights reserved.
+//
+
+// @formatter:off
+
+package android.util;
+
+/**
+ * Benchmark stand-in for the Android log. Messages are discarded so logging does not dominate measurements.
+ */
+public class Log
+{
+  public static int d(String tag, String msg) {
+    return 0;
+  }
+
+  public static int i(String tag, String msg) {
+    return 0;
+  }
+
+  public static int w(String tag, String msg) {
+    return 0;
+  }
+
+  public static int e(String tag, String msg) {
+    return 0;
+  }
+}
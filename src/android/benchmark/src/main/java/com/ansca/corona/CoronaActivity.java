@@ -0,0 +1,22 @@
+//
+// CoronaActivity.java
+// Kochava Plugin
+//
+// Copyright (c) 2016 CoronaLabs inc. All rights reserved.
+//
+
+// @formatter:off
+
+package com.ansca.corona;
+
+import android.content.Context;
+
+/**
+ * Benchmark stand-in for the Corona activity.
+ */
+public class CoronaActivity extends Context
+{
+  public void runOnUiThread(Runnable runnable) {
+    runnable.run();
+  }
+}
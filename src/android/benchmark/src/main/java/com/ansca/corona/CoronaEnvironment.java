@@ -0,0 +1,31 @@
+//
+// CoronaEnvironment.java
+// Kochava Plugin
+//
+// Copyright (c) 2016 CoronaLabs inc. All rights reserved.
+//
+
+// @formatter:off
+
+package com.ansca.corona;
+
+import android.content.Context;
+
+/**
+ * Benchmark stand-in for the Corona environment, with a single activity.
+ */
+public class CoronaEnvironment
+{
+  private static final CoronaActivity activity = new CoronaActivity();
+
+  public static CoronaActivity getCoronaActivity() {
+    return activity;
+  }
+
+  public static Context getApplicationContext() {
+    return activity;
+  }
+
+  public static void addRuntimeListener(CoronaRuntimeListener listener) {
+  }
+}
@@ -0,0 +1,102 @@
+//
+// CoronaLua.java
+// Kochava Plugin
+//
+// Copyright (c) 2016 CoronaLabs inc. All rights reserved.
+//
+
+// @formatter:off
+
+package com.ansca.corona;
+
+import com.naef.jnlua.LuaState;
+
+import java.util.ArrayList;
+import java.util.Hashtable;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Benchmark stand-in for the Corona Lua helpers.
+ * <p>
+ * Dispatched events are counted and popped, as if handed to a listener which does nothing.
+ */
+public class CoronaLua
+{
+  public static final int REFNIL = -1;
+
+  private static final List<Object> references = new ArrayList<>();
+  private static long dispatchedCount = 0;
+
+  // number of events dispatched so far (benchmark helper)
+  public static long getDispatchedCount() {
+    return dispatchedCount;
+  }
+
+  public static int newRef(LuaState L, int index) {
+    references.add(L.get(index));
+    return references.size() - 1;
+  }
+
+  public static void deleteRef(LuaState L, int ref) {
+    if ((ref >= 0) && (ref < references.size())) {
+      references.set(ref, null);
+    }
+  }
+
+  public static boolean isListener(LuaState L, int index, String eventName) {
+    Object value = L.get(index);
+    return (value instanceof LuaState.Table) || (value instanceof com.naef.jnlua.JavaFunction);
+  }
+
+  public static void newEvent(LuaState L, String eventName) {
+    L.newTable();
+    L.pushString(eventName);
+    L.setField(-2, "name");
+  }
+
+  public static void dispatchEvent(LuaState L, int listenerRef, int resultCount) throws Exception {
+    dispatchedCount++;
+    L.pop(1);
+  }
+
+  public static void pushValue(LuaState L, Object value) {
+    if (value instanceof String) {
+      L.pushString((String)value);
+    }
+    else if (value instanceof Number) {
+      L.pushNumber(((Number)value).doubleValue());
+    }
+    else if (value instanceof Boolean) {
+      L.pushBoolean((Boolean)value);
+    }
+    else if (value instanceof Map) {
+      L.newTable();
+      for (Map.Entry<?, ?> entry : ((Map<?, ?>)value).entrySet()) {
+        pushValue(L, entry.getValue());
+        L.setField(-2, String.valueOf(entry.getKey()));
+      }
+    }
+    else if (value != null) {
+      L.pushString(value.toString());
+    }
+    else {
+      L.pushNil();
+    }
+  }
+
+  public static Hashtable<Object, Object> toHashtable(LuaState L, int index) {
+    Object value = L.get(index);
+    return (value instanceof LuaState.Table) ? toHashtable((LuaState.Table)value) : null;
+  }
+
+  private static Hashtable<Object, Object> toHashtable(LuaState.Table table) {
+    Hashtable<Object, Object> hashtable = new Hashtable<>();
+    for (Map.Entry<Object, Object> entry : table.toMap().entrySet()) {
+      Object value = entry.getValue();
+      hashtable.put(entry.getKey(), (value instanceof LuaState.Table) ? toHashtable((LuaState.Table)value) : value);
+    }
+
+    return hashtable;
+  }
+}
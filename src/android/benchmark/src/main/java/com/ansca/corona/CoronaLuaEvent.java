@@ -0,0 +1,20 @@
+//
+// CoronaLuaEvent.java
+// Kochava Plugin
+//
+// Copyright (c) 2016 CoronaLabs inc. All rights reserved.
+//
+
+// @formatter:off
+
+package com.ansca.corona;
+
+/**
+ * Benchmark stand-in for the common Corona event keys.
+ */
+public class CoronaLuaEvent
+{
+  public static final String ISERROR_KEY  = "isError";
+  public static final String PROVIDER_KEY = "provider";
+  public static final String RESPONSE_KEY = "response";
+}
@@ -0,0 +1,28 @@
+//
+// CoronaRuntime.java
+// Kochava Plugin
+//
+// Copyright (c) 2016 CoronaLabs inc. All rights reserved.
+//
+
+// @formatter:off
+
+package com.ansca.corona;
+
+import com.naef.jnlua.LuaState;
+
+/**
+ * Benchmark stand-in for the Corona runtime, owning a single Lua state.
+ */
+public class CoronaRuntime
+{
+  private final LuaState luaState;
+
+  public CoronaRuntime(LuaState luaState) {
+    this.luaState = luaState;
+  }
+
+  public LuaState getLuaState() {
+    return luaState;
+  }
+}
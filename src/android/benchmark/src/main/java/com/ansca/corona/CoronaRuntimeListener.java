@@ -0,0 +1,22 @@
+//
+// CoronaRuntimeListener.java
+// Kochava Plugin
+//
+// Copyright (c) 2016 CoronaLabs inc. All rights reserved.
+//
+
+// @formatter:off
+
+package com.ansca.corona;
+
+/**
+ * Benchmark stand-in for the Corona runtime lifecycle listener.
+ */
+public interface CoronaRuntimeListener
+{
+  void onLoaded(CoronaRuntime runtime);
+  void onStarted(CoronaRuntime runtime);
+  void onSuspended(CoronaRuntime runtime);
+  void onResumed(CoronaRuntime runtime);
+  void onExiting(CoronaRuntime runtime);
+}
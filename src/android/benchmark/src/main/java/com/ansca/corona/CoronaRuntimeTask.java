@@ -0,0 +1,18 @@
+//
+// CoronaRuntimeTask.java
+// Kochava Plugin
+//
+// Copyright (c) 2016 CoronaLabs inc. All rights reserved.
+//
+
+// @formatter:off
+
+package com.ansca.corona;
+
+/**
+ * Benchmark stand-in for a task run on the Corona runtime's thread.
+ */
+public interface CoronaRuntimeTask
+{
+  void executeUsing(CoronaRuntime runtime);
+}
@@ -0,0 +1,36 @@
+//
+// CoronaRuntimeTaskDispatcher.java
+// Kochava Plugin
+//
+// Copyright (c) 2016 CoronaLabs inc. All rights reserved.
+//
+
+// @formatter:off
+
+package com.ansca.corona;
+
+import android.os.Looper;
+
+/**
+ * Benchmark stand-in for the Corona task dispatcher.
+ * <p>
+ * Tasks are run synchronously on the calling thread, which is the Lua thread in the benchmarks, unless the
+ * benchmark queues them with {@link Looper#setQueued}.
+ */
+public class CoronaRuntimeTaskDispatcher
+{
+  private final CoronaRuntime runtime;
+
+  public CoronaRuntimeTaskDispatcher(CoronaRuntime runtime) {
+    this.runtime = runtime;
+  }
+
+  public void send(final CoronaRuntimeTask task) {
+    Looper.post(new Runnable() {
+      @Override
+      public void run() {
+        task.executeUsing(runtime);
+      }
+    });
+  }
+}
@@ -0,0 +1,95 @@
+//
+// Tracker.java
+// Kochava Plugin
+//
+// Copyright (c) 2016 CoronaLabs inc. All rights reserved.
+//
+
+// @formatter:off
+
+package com.kochava.tracker;
+
+import android.content.Context;
+
+import com.kochava.tracker.attribution.InstallAttributionApi;
+import com.kochava.tracker.attribution.RetrievedInstallAttributionListener;
+import com.kochava.tracker.log.LogLevel;
+
+import org.json.JSONObject;
+
+/**
+ * Benchmark stand-in for the Kochava tracker.
+ * <p>
+ * Starting only sets a flag, attribution is never retrieved and identity links are counted.
+ */
+public final class Tracker implements TrackerApi
+{
+  private static final Tracker instance = new Tracker();
+
+  private volatile boolean started = false;
+  private long identityLinkCount = 0;
+
+  public static TrackerApi getInstance() {
+    return instance;
+  }
+
+  // number of identity links registered so far (benchmark helper)
+  public static long getIdentityLinkCount() {
+    return instance.identityLinkCount;
+  }
+
+  @Override
+  public boolean isStarted() {
+    return started;
+  }
+
+  @Override
+  public void startWithAppGuid(Context context, String appGuid) {
+    started = true;
+  }
+
+  @Override
+  public void executeAdvancedInstruction(String key, String value) {
+  }
+
+  @Override
+  public void retrieveInstallAttribution(RetrievedInstallAttributionListener listener) {
+  }
+
+  @Override
+  public InstallAttributionApi getInstallAttribution() {
+    return new InstallAttributionApi() {
+      @Override
+      public boolean isRetrieved() {
+        return false;
+      }
+
+      @Override
+      public JSONObject getRaw() {
+        return new JSONObject();
+      }
+    };
+  }
+
+  @Override
+  public void setLogLevel(LogLevel logLevel) {
+  }
+
+  @Override
+  public void setAppLimitAdTracking(boolean appLimitAdTracking) {
+  }
+
+  @Override
+  public void setIntelligentConsentGranted(boolean granted) {
+  }
+
+  @Override
+  public String getDeviceId() {
+    return "KA00000000000000000000000000000000";
+  }
+
+  @Override
+  public void registerIdentityLink(String name, String identifier) {
+    identityLinkCount++;
+  }
+}
@@ -0,0 +1,33 @@
+//
+// TrackerApi.java
+// Kochava Plugin
+//
+// Copyright (c) 2016 CoronaLabs inc. All rights reserved.
+//
+
+// @formatter:off
+
+package com.kochava.tracker;
+
+import android.content.Context;
+
+import com.kochava.tracker.attribution.InstallAttributionApi;
+import com.kochava.tracker.attribution.RetrievedInstallAttributionListener;
+import com.kochava.tracker.log.LogLevel;
+
+/**
+ * Benchmark stand-in for the subset of the Kochava tracker API used by the plugin.
+ */
+public interface TrackerApi
+{
+  boolean isStarted();
+  void startWithAppGuid(Context context, String appGuid);
+  void executeAdvancedInstruction(String key, String value);
+  void retrieveInstallAttribution(RetrievedInstallAttributionListener listener);
+  InstallAttributionApi getInstallAttribution();
+  void setLogLevel(LogLevel logLevel);
+  void setAppLimitAdTracking(boolean appLimitAdTracking);
+  void setIntelligentConsentGranted(boolean granted);
+  String getDeviceId();
+  void registerIdentityLink(String name, String identifier);
+}
@@ -0,0 +1,21 @@
+//
+// InstallAttributionApi.java
+// Kochava Plugin
+//
+// Copyright (c) 2016 CoronaLabs inc. All rights reserved.
+//
+
+// @formatter:off
+
+package com.kochava.tracker.attribution;
+
+import org.json.JSONObject;
+
+/**
+ * Benchmark stand-in for retrieved install attribution.
+ */
+public interface InstallAttributionApi
+{
+  boolean isRetrieved();
+  JSONObject getRaw();
+}
@@ -0,0 +1,18 @@
+//
+// RetrievedInstallAttributionListener.java
+// Kochava Plugin
+//
+// Copyright (c) 2016 CoronaLabs inc. All rights reserved.
+//
+
+// @formatter:off
+
+package com.kochava.tracker.attribution;
+
+/**
+ * Benchmark stand-in for the install attribution callback.
+ */
+public interface RetrievedInstallAttributionListener
+{
+  void onRetrievedInstallAttribution(InstallAttributionApi installAttribution);
+}
@@ -0,0 +1,104 @@
+//
+// Event.java
+// Kochava Plugin
+//
+// Copyright (c) 2016 CoronaLabs inc. All rights reserved.
+//
+
+// @formatter:off
+
+package com.kochava.tracker.events;
+
+import android.os.Bundle;
+
+/**
+ * Benchmark stand-in for the Kochava event builder.
+ * <p>
+ * Builders store nothing; each setter only counts, and send() counts sent events.
+ */
+public final class Event implements EventApi
+{
+  private static long sentCount = 0;
+
+  private final String eventName;
+  private int valueCount = 0;
+
+  private Event(String eventName) {
+    this.eventName = eventName;
+  }
+
+  public static EventApi buildWithEventType(EventType eventType) {
+    return new Event(eventType.name());
+  }
+
+  public static EventApi buildWithEventName(String eventName) {
+    return new Event(eventName);
+  }
+
+  // number of events sent so far (benchmark helper)
+  public static long getSentCount() {
+    return sentCount;
+  }
+
+  private EventApi set() {
+    valueCount++;
+    return this;
+  }
+
+  @Override public EventApi setAction(String value) { return set(); }
+  @Override public EventApi setAdCampaignId(String value) { return set(); }
+  @Override public EventApi setAdCampaignName(String value) { return set(); }
+  @Override public EventApi setAdDeviceType(String value) { return set(); }
+  @Override public EventApi setAdGroupId(String value) { return set(); }
+  @Override public EventApi setAdGroupName(String value) { return set(); }
+  @Override public EventApi setAdMediationName(String value) { return set(); }
+  @Override public EventApi setAdNetworkName(String value) { return set(); }
+  @Override public EventApi setAdPlacement(String value) { return set(); }
+  @Override public EventApi setAdSize(String value) { return set(); }
+  @Override public EventApi setAdType(String value) { return set(); }
+  @Override public EventApi setCheckoutAsGuest(String value) { return set(); }
+  @Override public EventApi setContentId(String value) { return set(); }
+  @Override public EventApi setContentType(String value) { return set(); }
+  @Override public EventApi setCurrency(String value) { return set(); }
+  @Override public EventApi setDate(String value) { return set(); }
+  @Override public EventApi setDescription(String value) { return set(); }
+  @Override public EventApi setDestination(String value) { return set(); }
+  @Override public EventApi setEndDate(String value) { return set(); }
+  @Override public EventApi setItemAddedFrom(String value) { return set(); }
+  @Override public EventApi setLevel(String value) { return set(); }
+  @Override public EventApi setName(String value) { return set(); }
+  @Override public EventApi setOrderId(String value) { return set(); }
+  @Override public EventApi setOrigin(String value) { return set(); }
+  @Override public EventApi setReceiptId(String value) { return set(); }
+  @Override public EventApi setReferralFrom(String value) { return set(); }
+  @Override public EventApi setRegistrationMethod(String value) { return set(); }
+  @Override public EventApi setResults(String value) { return set(); }
+  @Override public EventApi setScore(String value) { return set(); }
+  @Override public EventApi setSearchTerm(String value) { return set(); }
+  @Override public EventApi setStartDate(String value) { return set(); }
+  @Override public EventApi setSuccess(String value) { return set(); }
+  @Override public EventApi setUserId(String value) { return set(); }
+  @Override public EventApi setUserName(String value) { return set(); }
+  @Override public EventApi setValidated(String value) { return set(); }
+  @Override public EventApi setUri(String value) { return set(); }
+  @Override public EventApi setDuration(double value) { return set(); }
+  @Override public EventApi setMaxRatingValue(double value) { return set(); }
+  @Override public EventApi setPrice(double value) { return set(); }
+  @Override public EventApi setQuantity(double value) { return set(); }
+  @Override public EventApi setRatingValue(double value) { return set(); }
+  @Override public EventApi setSpatialX(double value) { return set(); }
+  @Override public EventApi setSpatialY(double value) { return set(); }
+  @Override public EventApi setSpatialZ(double value) { return set(); }
+  @Override public EventApi setBackground(boolean value) { return set(); }
+  @Override public EventApi setCompleted(boolean value) { return set(); }
+  @Override public EventApi setCustomStringValue(String key, String value) { return set(); }
+  @Override public EventApi setCustomNumberValue(String key, double value) { return set(); }
+  @Override public EventApi setCustomBoolValue(String key, boolean value) { return set(); }
+  @Override public EventApi setGooglePlayReceipt(String receiptData, String dataSignature) { return set(); }
+  @Override public EventApi setPayload(Bundle value) { return set(); }
+
+  @Override
+  public void send() {
+    sentCount++;
+  }
+}
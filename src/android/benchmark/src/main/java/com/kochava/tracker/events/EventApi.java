@@ -0,0 +1,71 @@
+//
+// EventApi.java
+// Kochava Plugin
+//
+// Copyright (c) 2016 CoronaLabs inc. All rights reserved.
+//
+
+// @formatter:off
+
+package com.kochava.tracker.events;
+
+import android.os.Bundle;
+
+/**
+ * Benchmark stand-in for the subset of the Kochava event API used by the plugin.
+ */
+public interface EventApi
+{
+  EventApi setAction(String value);
+  EventApi setAdCampaignId(String value);
+  EventApi setAdCampaignName(String value);
+  EventApi setAdDeviceType(String value);
+  EventApi setAdGroupId(String value);
+  EventApi setAdGroupName(String value);
+  EventApi setAdMediationName(String value);
+  EventApi setAdNetworkName(String value);
+  EventApi setAdPlacement(String value);
+  EventApi setAdSize(String value);
+  EventApi setAdType(String value);
+  EventApi setCheckoutAsGuest(String value);
+  EventApi setContentId(String value);
+  EventApi setContentType(String value);
+  EventApi setCurrency(String value);
+  EventApi setDate(String value);
+  EventApi setDescription(String value);
+  EventApi setDestination(String value);
+  EventApi setEndDate(String value);
+  EventApi setItemAddedFrom(String value);
+  EventApi setLevel(String value);
+  EventApi setName(String value);
+  EventApi setOrderId(String value);
+  EventApi setOrigin(String value);
+  EventApi setReceiptId(String value);
+  EventApi setReferralFrom(String value);
+  EventApi setRegistrationMethod(String value);
+  EventApi setResults(String value);
+  EventApi setScore(String value);
+  EventApi setSearchTerm(String value);
+  EventApi setStartDate(String value);
+  EventApi setSuccess(String value);
+  EventApi setUserId(String value);
+  EventApi setUserName(String value);
+  EventApi setValidated(String value);
+  EventApi setUri(String value);
+  EventApi setDuration(double value);
+  EventApi setMaxRatingValue(double value);
+  EventApi setPrice(double value);
+  EventApi setQuantity(double value);
+  EventApi setRatingValue(double value);
+  EventApi setSpatialX(double value);
+  EventApi setSpatialY(double value);
+  EventApi setSpatialZ(double value);
+  EventApi setBackground(boolean value);
+  EventApi setCompleted(boolean value);
+  EventApi setCustomStringValue(String key, String value);
+  EventApi setCustomNumberValue(String key, double value);
+  EventApi setCustomBoolValue(String key, boolean value);
+  EventApi setGooglePlayReceipt(String receiptData, String dataSignature);
+  EventApi setPayload(Bundle value);
+  void send();
+}
@@ -0,0 +1,19 @@
+//
+// EventType.java
+// Kochava Plugin
+//
+// Copyright (c) 2016 CoronaLabs inc. All rights reserved.
+//
+
+// @formatter:off
+
+package com.kochava.tracker.events;
+
+/**
+ * Benchmark stand-in for the standard Kochava event types.
+ */
+public enum EventType
+{
+  ACHIEVEMENT, AD_VIEW, ADD_TO_CART, ADD_TO_WISH_LIST, CHECKOUT_START, LEVEL_COMPLETE, PURCHASE, PUSH_OPENED,
+  PUSH_RECEIVED, RATING, REGISTRATION_COMPLETE, SEARCH, TUTORIAL_COMPLETE, VIEW, DEEPLINK
+}
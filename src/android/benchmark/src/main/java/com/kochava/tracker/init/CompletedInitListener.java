@@ -0,0 +1,18 @@
+//
+// CompletedInitListener.java
+// Kochava Plugin
+//
+// Copyright (c) 2016 CoronaLabs inc. All rights reserved.
+//
+
+// @formatter:off
+
+package com.kochava.tracker.init;
+
+/**
+ * Benchmark stand-in for the tracker init callback.
+ */
+public interface CompletedInitListener
+{
+  void onCompletedInit(InitApi init);
+}
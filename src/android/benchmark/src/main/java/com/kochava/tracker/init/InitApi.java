@@ -0,0 +1,17 @@
+//
+// InitApi.java
+// Kochava Plugin
+//
+// Copyright (c) 2016 CoronaLabs inc. All rights reserved.
+//
+
+// @formatter:off
+
+package com.kochava.tracker.init;
+
+/**
+ * Benchmark stand-in for the tracker init result.
+ */
+public interface InitApi
+{
+}
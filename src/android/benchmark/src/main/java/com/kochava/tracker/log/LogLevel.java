@@ -0,0 +1,18 @@
+//
+// LogLevel.java
+// Kochava Plugin
+//
+// Copyright (c) 2016 CoronaLabs inc. All rights reserved.
+//
+
+// @formatter:off
+
+package com.kochava.tracker.log;
+
+/**
+ * Benchmark stand-in for the tracker log levels.
+ */
+public enum LogLevel
+{
+  NONE, ERROR, WARN, INFO, DEBUG, TRACE
+}
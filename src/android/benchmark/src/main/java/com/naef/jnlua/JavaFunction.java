@@ -0,0 +1,18 @@
+//
+// JavaFunction.java
+// Kochava Plugin
+//
+// Copyright (c) 2016 CoronaLabs inc. All rights reserved.
+//
+
+// @formatter:off
+
+package com.naef.jnlua;
+
+/**
+ * Benchmark stand-in for a Java function callable from Lua.
+ */
+public interface JavaFunction
+{
+  int invoke(LuaState L);
+}
@@ -0,0 +1,378 @@
+//
+// LuaState.java
+// Kochava Plugin
+//
+// Copyright (c) 2016 CoronaLabs inc. All rights reserved.
+//
+
+// @formatter:off
+
+package com.naef.jnlua;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Benchmark stand-in for the JNLua state.
+ * <p>
+ * Implements the subset of the API used by the plugin over a Java stack. Values are null (nil), Boolean, Double,
+ * String, {@link Table} or {@link JavaFunction}.
+ */
+public class LuaState
+{
+  private Object[] stack = new Object[32];
+  private int top = 0;
+
+  // functions registered with register(), by name
+  private final Map<String, NamedJavaFunction> registered = new HashMap<>();
+
+  // --------------------------------------------------------------------------
+  // benchmark helpers (not part of JNLua)
+  // --------------------------------------------------------------------------
+
+  // push any stand-in value
+  public void push(Object value) {
+    if (top == stack.length) {
+      Object[] grown = new Object[top * 2];
+      System.arraycopy(stack, 0, grown, 0, top);
+      stack = grown;
+    }
+    stack[top++] = value;
+  }
+
+  // value at the given stack index
+  public Object get(int index) {
+    int absolute = absIndex(index);
+    return ((absolute >= 1) && (absolute <= top)) ? stack[absolute - 1] : null;
+  }
+
+  // function registered with register()
+  public NamedJavaFunction getFunction(String name) {
+    return registered.get(name);
+  }
+
+  // --------------------------------------------------------------------------
+  // stack
+  // --------------------------------------------------------------------------
+
+  public int getTop() {
+    return top;
+  }
+
+  public void setTop(int index) {
+    int newTop = absIndex(index);
+    while (top < newTop) {
+      push(null);
+    }
+    while (top > newTop) {
+      stack[--top] = null;
+    }
+  }
+
+  public int absIndex(int index) {
+    return (index < 0) ? top + index + 1 : index;
+  }
+
+  public void pop(int count) {
+    setTop(top - count);
+  }
+
+  public void pushValue(int index) {
+    push(get(index));
+  }
+
+  public void pushNil() {
+    push(null);
+  }
+
+  public void pushBoolean(boolean value) {
+    push(value);
+  }
+
+  public void pushNumber(double value) {
+    push(value);
+  }
+
+  public void pushInteger(int value) {
+    push((double)value);
+  }
+
+  public void pushString(String value) {
+    push(value);
+  }
+
+  // --------------------------------------------------------------------------
+  // types and conversions
+  // --------------------------------------------------------------------------
+
+  public LuaType type(int index) {
+    int absolute = absIndex(index);
+    if ((absolute < 1) || (absolute > top)) {
+      return LuaType.NONE;
+    }
+
+    return typeOf(stack[absolute - 1]);
+  }
+
+  public String typeName(int index) {
+    LuaType type = type(index);
+    return (type == LuaType.NONE) ? "no value" : type.name().toLowerCase();
+  }
+
+  public boolean isNoneOrNil(int index) {
+    return get(index) == null;
+  }
+
+  public boolean isNumber(int index) {
+    Object value = get(index);
+    return (value instanceof Double) || ((value instanceof String) && (toNumber((String)value) != null));
+  }
+
+  public boolean isString(int index) {
+    Object value = get(index);
+    return (value instanceof String) || (value instanceof Double);
+  }
+
+  public boolean toBoolean(int index) {
+    Object value = get(index);
+    return (value != null) && (value != Boolean.FALSE);
+  }
+
+  public double toNumber(int index) {
+    Object value = get(index);
+    if (value instanceof Double) {
+      return (Double)value;
+    }
+    if (value instanceof String) {
+      Double number = toNumber((String)value);
+      return (number != null) ? number : 0;
+    }
+
+    return 0;
+  }
+
+  public int toInteger(int index) {
+    return (int)toNumber(index);
+  }
+
+  public String toString(int index) {
+    Object value = get(index);
+    if (value instanceof String) {
+      return (String)value;
+    }
+    if (value instanceof Double) {
+      double number = (Double)value;
+      return (number == Math.rint(number)) && !Double.isInfinite(number) ? Long.toString((long)number) : Double.toString(number);
+    }
+
+    return null;
+  }
+
+  // --------------------------------------------------------------------------
+  // tables
+  // --------------------------------------------------------------------------
+
+  public void newTable() {
+    push(new Table());
+  }
+
+  public void newTable(int arrayCount, int recordCount) {
+    push(new Table());
+  }
+
+  public void getField(int index, String key) {
+    push(table(index).get(key));
+  }
+
+  public void setField(int index, String key) {
+    Table table = table(index);
+    table.put(key, get(-1));
+    pop(1);
+  }
+
+  public void rawGet(int index) {
+    Table table = table(index);
+    Object key = get(-1);
+    pop(1);
+    push(table.get(key));
+  }
+
+  public void rawGet(int index, int key) {
+    push(table(index).get((double)key));
+  }
+
+  public void rawSet(int index) {
+    Table table = table(index);
+    table.put(get(-2), get(-1));
+    pop(2);
+  }
+
+  public void rawSet(int index, int key) {
+    Table table = table(index);
+    table.put((double)key, get(-1));
+    pop(1);
+  }
+
+  public boolean next(int index) {
+    Table table = table(index);
+    Object key = get(-1);
+    pop(1);
+
+    int entry = table.nextEntry(key);
+    if (entry < 0) {
+      return false;
+    }
+
+    push(table.keys.get(entry));
+    push(table.values.get(entry));
+    return true;
+  }
+
+  public int length(int index) {
+    Object value = get(index);
+    if (value instanceof String) {
+      return ((String)value).length();
+    }
+    if (value instanceof Table) {
+      return ((Table)value).length();
+    }
+
+    return 0;
+  }
+
+  // --------------------------------------------------------------------------
+  // registration
+  // --------------------------------------------------------------------------
+
+  public void register(String moduleName, NamedJavaFunction[] functions) {
+    Table module = new Table();
+    for (NamedJavaFunction function : functions) {
+      registered.put(function.getName(), function);
+      module.put(function.getName(), function);
+    }
+    push(module);
+  }
+
+  private Table table(int index) {
+    Object value = get(index);
+    if (! (value instanceof Table)) {
+      throw new IllegalArgumentException("table expected at index " + index + ", got " + typeName(index));
+    }
+
+    return (Table)value;
+  }
+
+  private static LuaType typeOf(Object value) {
+    if (value == null) {
+      return LuaType.NIL;
+    }
+    if (value instanceof Boolean) {
+      return LuaType.BOOLEAN;
+    }
+    if (value instanceof Double) {
+      return LuaType.NUMBER;
+    }
+    if (value instanceof String) {
+      return LuaType.STRING;
+    }
+    if (value instanceof Table) {
+      return LuaType.TABLE;
+    }
+    if (value instanceof JavaFunction) {
+      return LuaType.FUNCTION;
+    }
+
+    return LuaType.USERDATA;
+  }
+
+  private static Double toNumber(String value) {
+    try {
+      return Double.valueOf(value.trim());
+    }
+    catch (NumberFormatException ex) {
+      return null;
+    }
+  }
+
+  /**
+   * Lua table keeping its entries in insertion order, so next() iterates like a small Lua table.
+   */
+  public static final class Table
+  {
+    private final List<Object> keys = new ArrayList<>();
+    private final List<Object> values = new ArrayList<>();
+    private final Map<Object, Integer> entries = new HashMap<>();
+
+    // build a table from alternating keys and values (benchmark helper)
+    public static Table of(Object... keysAndValues) {
+      Table table = new Table();
+      for (int i = 0; i + 1 < keysAndValues.length; i += 2) {
+        Object value = keysAndValues[i + 1];
+        if ((value instanceof Number) && !(value instanceof Double)) {
+          value = ((Number)value).doubleValue();
+        }
+        table.put(keysAndValues[i], value);
+      }
+
+      return table;
+    }
+
+    public Object get(Object key) {
+      Integer entry = entries.get(key);
+      return (entry != null) ? values.get(entry) : null;
+    }
+
+    public void put(Object key, Object value) {
+      Integer entry = entries.get(key);
+      if (entry != null) {
+        values.set(entry, value);
+      }
+      else if (value != null) {
+        entries.put(key, keys.size());
+        keys.add(key);
+        values.add(value);
+      }
+    }
+
+    // index of the first non-nil entry after the given key (null for the first entry), or -1 at the end
+    int nextEntry(Object key) {
+      int entry = 0;
+      if (key != null) {
+        Integer current = entries.get(key);
+        if (current == null) {
+          return -1;
+        }
+        entry = current + 1;
+      }
+
+      while ((entry < keys.size()) && (values.get(entry) == null)) {
+        entry++;
+      }
+
+      return (entry < keys.size()) ? entry : -1;
+    }
+
+    int length() {
+      int length = 0;
+      while (get((double)(length + 1)) != null) {
+        length++;
+      }
+
+      return length;
+    }
+
+    // copy of the entries in iteration order
+    public Map<Object, Object> toMap() {
+      Map<Object, Object> map = new java.util.LinkedHashMap<>();
+      for (int i = 0; i < keys.size(); i++) {
+        if (values.get(i) != null) {
+          map.put(keys.get(i), values.get(i));
+        }
+      }
+
+      return map;
+    }
+  }
+}
@@ -0,0 +1,18 @@
+//
+// LuaType.java
+// Kochava Plugin
+//
+// Copyright (c) 2016 CoronaLabs inc. All rights reserved.
+//
+
+// @formatter:off
+
+package com.naef.jnlua;
+
+/**
+ * Benchmark stand-in for the JNLua value types.
+ */
+public enum LuaType
+{
+  NONE, NIL, BOOLEAN, LIGHTUSERDATA, NUMBER, STRING, TABLE, FUNCTION, USERDATA, THREAD
+}
@@ -0,0 +1,18 @@
+//
+// NamedJavaFunction.java
+// Kochava Plugin
+//
+// Copyright (c) 2016 CoronaLabs inc. All rights reserved.
+//
+
+// @formatter:off
+
+package com.naef.jnlua;
+
+/**
+ * Benchmark stand-in for a Java function registered in a Lua module.
+ */
+public interface NamedJavaFunction extends JavaFunction
+{
+  String getName();
+}
@@ -0,0 +1,122 @@
+//
+// AttributionCache.java
+// Kochava Plugin
+//
+// Copyright (c) 2016 CoronaLabs inc. All rights reserved.
+//
+
+// @formatter:off
+
+package plugin.kochava;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Raw install attribution kept in memory and in a small file once it has been received.
+ * <p>
+ * The cached value can be read from any thread, so kochava.getAttributionData() can return it synchronously.
+ * A single flag de-duplicates retrievals so only one request to the SDK is ever in flight. The file is read and
+ * written on the plugin's file thread.
+ */
+final class AttributionCache
+{
+  private static final String CHARSET = "UTF-8";
+
+  private final AtomicBoolean retrievalInFlight = new AtomicBoolean(false);
+  private volatile String attribution = null;
+  private volatile File file = null;
+
+  // set the backing file, read by load() and written by save()
+  void setFile(File file) {
+    this.file = file;
+  }
+
+  // load the attribution saved by a previous run, unless attribution has already been received
+  void load() {
+    File source = file;
+    if ((attribution != null) || (source == null) || (! source.exists())) {
+      return;
+    }
+
+    try {
+      FileInputStream in = new FileInputStream(source);
+      try {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        int count;
+        while ((count = in.read(buffer)) != -1) {
+          bytes.write(buffer, 0, count);
+        }
+
+        if (bytes.size() > 0) {
+          String saved = bytes.toString(CHARSET);
+          synchronized (this) {
+            // attribution received while the file was read is newer
+            if (attribution == null) {
+              attribution = saved;
+            }
+          }
+        }
+      }
+      finally {
+        in.close();
+      }
+    }
+    catch (IOException ex) {
+      ex.printStackTrace();
+    }
+  }
+
+  // cached raw attribution, or null if it has not been received yet
+  String get() {
+    return attribution;
+  }
+
+  // cache received attribution, save() writes it for the next run
+  synchronized void put(String rawAttribution) {
+    attribution = rawAttribution;
+  }
+
+  // save the cached attribution for the next run
+  void save() {
+    File target = file;
+    String rawAttribution = attribution;
+    if ((target == null) || (rawAttribution == null)) {
+      return;
+    }
+
+    // write to a temporary file first so a partial write never replaces a good copy
+    File temp = new File(target.getPath() + ".tmp");
+    try {
+      FileOutputStream out = new FileOutputStream(temp);
+      try {
+        out.write(rawAttribution.getBytes(CHARSET));
+      }
+      finally {
+        out.close();
+      }
+
+      if (! temp.renameTo(target)) {
+        temp.delete();
+      }
+    }
+    catch (IOException ex) {
+      ex.printStackTrace();
+    }
+  }
+
+  // returns true if the caller should start a retrieval, false if one is already in flight
+  boolean beginRetrieval() {
+    return retrievalInFlight.compareAndSet(false, true);
+  }
+
+  // allow a new retrieval to start
+  void endRetrieval() {
+    retrievalInFlight.set(false);
+  }
+}
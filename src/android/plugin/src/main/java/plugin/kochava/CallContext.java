@@ -0,0 +1,30 @@
+//
+// CallContext.java
+// Kochava Plugin
+//
+// Copyright (c) 2016 CoronaLabs inc. All rights reserved.
+//
+
+// @formatter:off
+
+package plugin.kochava;
+
+/**
+ * Identifies the Lua function being called, for statistics and diagnostics.
+ * <p>
+ * Each Lua function holds one immutable context and passes it explicitly to the helpers it calls, so a message
+ * always names the function that produced it, whatever thread logs it and however calls interleave.
+ */
+final class CallContext
+{
+  // PluginStats.CALL_* index of the function
+  final int function;
+
+  // signature shown in messages, for example "kochava.logEvent(eventType, options)"
+  final String signature;
+
+  CallContext(int function, String signature) {
+    this.function = function;
+    this.signature = signature;
+  }
+}
@@ -0,0 +1,151 @@
+//
+// CommandQueue.java
+// Kochava Plugin
+//
+// Copyright (c) 2016 CoronaLabs inc. All rights reserved.
+//
+
+// @formatter:off
+
+package plugin.kochava;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.os.Process;
+
+/**
+ * Lock-free multi-producer/single-consumer queue of plugin commands.
+ * <p>
+ * Commands may be posted from any thread (typically the Lua thread) and are run in order by a single drain task.
+ * At most one drain task is scheduled on the executor while the queue is non-empty, so a burst of Lua calls
+ * results in one post to the executor instead of one post per call.
+ */
+final class CommandQueue
+{
+  private final ConcurrentLinkedQueue<Runnable> commands = new ConcurrentLinkedQueue<>();
+  private final AtomicBoolean drainScheduled = new AtomicBoolean(false);
+
+  // queue metrics
+  private final AtomicInteger depth = new AtomicInteger(0);
+  private final AtomicInteger maxDepth = new AtomicInteger(0);
+  private final AtomicLong postCount = new AtomicLong(0);
+  private final AtomicLong drainCount = new AtomicLong(0);
+  private final LatencyHistogram commandTimes = new LatencyHistogram();
+
+  private volatile Executor executor;
+
+  private final Runnable drainTask = new Runnable() {
+    @Override
+    public void run() {
+      drainCount.incrementAndGet();
+
+      Runnable command;
+      while ((command = commands.poll()) != null) {
+        depth.decrementAndGet();
+        long start = System.nanoTime();
+        try {
+          command.run();
+        }
+        catch (Exception ex) {
+          ex.printStackTrace();
+        }
+        commandTimes.record(System.nanoTime() - start);
+      }
+
+      drainScheduled.set(false);
+
+      // a command may have been posted after the last poll() but before the flag was cleared
+      if (! commands.isEmpty()) {
+        scheduleDrain();
+      }
+    }
+  };
+
+  CommandQueue(Executor executor) {
+    this.executor = executor;
+  }
+
+  // returns an executor that runs commands on the main UI thread
+  static Executor mainThreadExecutor() {
+    final Handler handler = new Handler(Looper.getMainLooper());
+
+    return new Executor() {
+      @Override
+      public void execute(Runnable command) {
+        handler.post(command);
+      }
+    };
+  }
+
+  // returns an executor that runs commands on a new plugin-owned background thread
+  static Executor backgroundThreadExecutor(String threadName) {
+    HandlerThread thread = new HandlerThread(threadName, Process.THREAD_PRIORITY_BACKGROUND);
+    thread.start();
+    final Handler handler = new Handler(thread.getLooper());
+
+    return new Executor() {
+      @Override
+      public void execute(Runnable command) {
+        handler.post(command);
+      }
+    };
+  }
+
+  // change the executor that pending and future commands are run on
+  // commands are still run one at a time and in order
+  void setExecutor(Executor executor) {
+    this.executor = executor;
+  }
+
+  // queue a command, scheduling a drain if none is pending
+  void post(Runnable command) {
+    commands.offer(command);
+    postCount.incrementAndGet();
+
+    int currentDepth = depth.incrementAndGet();
+    int currentMax = maxDepth.get();
+    while ((currentDepth > currentMax) && (! maxDepth.compareAndSet(currentMax, currentDepth))) {
+      currentMax = maxDepth.get();
+    }
+
+    scheduleDrain();
+  }
+
+  private void scheduleDrain() {
+    if (drainScheduled.compareAndSet(false, true)) {
+      executor.execute(drainTask);
+    }
+  }
+
+  // number of commands waiting to be run
+  int getDepth() {
+    return depth.get();
+  }
+
+  // highest number of commands that were waiting at the same time
+  int getMaxDepth() {
+    return maxDepth.get();
+  }
+
+  // total number of commands posted
+  long getPostCount() {
+    return postCount.get();
+  }
+
+  // total number of drain tasks run on the executor
+  long getDrainCount() {
+    return drainCount.get();
+  }
+
+  // time spent running each command
+  LatencyHistogram getCommandTimes() {
+    return commandTimes;
+  }
+}
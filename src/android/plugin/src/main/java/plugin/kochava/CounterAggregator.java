@@ -0,0 +1,139 @@
+//
+// CounterAggregator.java
+// Kochava Plugin
+//
+// Copyright (c) 2016 CoronaLabs inc. All rights reserved.
+//
+
+// @formatter:off
+
+package plugin.kochava;
+
+import com.kochava.tracker.events.Event;
+import com.kochava.tracker.events.EventApi;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Counters added to by kochava.increment(), sent as one custom event per event name when flushed.
+ * <p>
+ * Counters of an event name are kept in an open-addressing map of property names to primitive doubles, so an
+ * increment of an existing counter doesn't allocate. The counters of an event name are handed over for sending
+ * once they have been incremented a given number of times, or when all counters are flushed.
+ */
+final class CounterAggregator
+{
+  private final Map<String, Counters> pending = new HashMap<>();
+
+  // add to a counter, returning the counters of the event name if they must be sent now, or null
+  // flushThreshold is the number of increments of an event name after which its counters are sent
+  synchronized Counters add(String eventName, String key, double delta, int flushThreshold) {
+    Counters counters = pending.get(eventName);
+    if (counters == null) {
+      counters = new Counters(eventName);
+      pending.put(eventName, counters);
+    }
+
+    counters.add(key, delta);
+
+    if (counters.increments >= flushThreshold) {
+      pending.remove(eventName);
+      return counters;
+    }
+
+    return null;
+  }
+
+  // remove and return the counters of every event name
+  synchronized Counters[] removeAll() {
+    Counters[] all = pending.values().toArray(new Counters[pending.size()]);
+    pending.clear();
+
+    return all;
+  }
+
+  /**
+   * Counters of one event name, indexed by property name.
+   */
+  static final class Counters {
+    final String eventName;
+    int increments = 0;
+
+    private String[] keys = new String[8];
+    private double[] values = new double[8];
+    private int size = 0;
+
+    Counters(String eventName) {
+      this.eventName = eventName;
+    }
+
+    void add(String key, double delta) {
+      increments++;
+
+      int mask = keys.length - 1;
+      int slot = key.hashCode() & mask;
+      while (keys[slot] != null) {
+        if (keys[slot].equals(key)) {
+          values[slot] += delta;
+          return;
+        }
+        slot = (slot + 1) & mask;
+      }
+
+      keys[slot] = key;
+      values[slot] = delta;
+      size++;
+
+      // keep the load factor under 3/4
+      if (size * 4 > keys.length * 3) {
+        grow();
+      }
+    }
+
+    // approximate size in bytes, for the pre-init buffer
+    int approximateSize() {
+      int approximateSize = 2 * eventName.length();
+      for (String key: keys) {
+        if (key != null) {
+          approximateSize += 16 + (2 * key.length());
+        }
+      }
+
+      return approximateSize;
+    }
+
+    // create the custom event holding every counter
+    EventApi newEventApi() {
+      EventApi eventApi = Event.buildWithEventName(eventName);
+      for (int slot = 0; slot < keys.length; slot++) {
+        if (keys[slot] != null) {
+          eventApi = eventApi.setCustomNumberValue(keys[slot], values[slot]);
+        }
+      }
+
+      return eventApi;
+    }
+
+    private void grow() {
+      String[] oldKeys = keys;
+      double[] oldValues = values;
+      keys = new String[oldKeys.length * 2];
+      values = new double[oldValues.length * 2];
+
+      int mask = keys.length - 1;
+      for (int i = 0; i < oldKeys.length; i++) {
+        if (oldKeys[i] == null) {
+          continue;
+        }
+
+        int slot = oldKeys[i].hashCode() & mask;
+        while (keys[slot] != null) {
+          slot = (slot + 1) & mask;
+        }
+        keys[slot] = oldKeys[i];
+        values[slot] = oldValues[i];
+      }
+    }
+  }
+}
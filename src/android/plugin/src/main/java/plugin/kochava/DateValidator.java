@@ -0,0 +1,128 @@
+//
+// DateValidator.java
+// Kochava Plugin
+//
+// Copyright (c) 2016 CoronaLabs inc. All rights reserved.
+//
+
+// @formatter:off
+
+package plugin.kochava;
+
+import java.text.DateFormat;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Locale;
+
+/**
+ * Thread-safe validation of "yyyy-MM-dd" dates.
+ * <p>
+ * Accepts exactly the strings accepted by a non-lenient {@code SimpleDateFormat("yyyy-MM-dd", Locale.ENGLISH)}.
+ * Canonical dates (4-digit year, 2-digit month and day) are checked without allocating, following the rules of
+ * the default {@link java.util.GregorianCalendar}: Julian leap years before the Gregorian cutover and no dates
+ * between 1582-10-05 and 1582-10-14. Any other form is rare and is handed to {@code SimpleDateFormat}.
+ */
+final class DateValidator
+{
+  // last day of the Julian calendar and first day of the Gregorian calendar
+  private static final int CUTOVER_YEAR        = 1582;
+  private static final int CUTOVER_MONTH       = 10;
+  private static final int JULIAN_LAST_DAY     = 4;
+  private static final int GREGORIAN_FIRST_DAY = 15;
+
+  private DateValidator() {
+  }
+
+  // return true if the string is a valid yyyy-MM-dd date
+  static boolean isValid(String date) {
+    if (isCanonical(date)) {
+      int year  = digitsAt(date, 0, 4);
+      int month = digitsAt(date, 5, 2);
+      int day   = digitsAt(date, 8, 2);
+
+      return isValid(year, month, day);
+    }
+
+    return isValidSlow(date);
+  }
+
+  // return true if the date exists in the default GregorianCalendar
+  static boolean isValid(int year, int month, int day) {
+    if ((year < 1) || (month < 1) || (month > 12) || (day < 1)) {
+      return false;
+    }
+
+    if ((year == CUTOVER_YEAR) && (month == CUTOVER_MONTH) && (day > JULIAN_LAST_DAY) && (day < GREGORIAN_FIRST_DAY)) {
+      return false;
+    }
+
+    return day <= daysInMonth(year, month);
+  }
+
+  private static int daysInMonth(int year, int month) {
+    switch (month) {
+      case 2:
+        return isLeapYear(year) ? 29 : 28;
+      case 4:
+      case 6:
+      case 9:
+      case 11:
+        return 30;
+      default:
+        return 31;
+    }
+  }
+
+  private static boolean isLeapYear(int year) {
+    if (year <= CUTOVER_YEAR) {
+      // Julian calendar
+      return (year % 4) == 0;
+    }
+
+    return ((year % 4) == 0) && (((year % 100) != 0) || ((year % 400) == 0));
+  }
+
+  // return true for "dddd-dd-dd" using ASCII digits
+  private static boolean isCanonical(String date) {
+    if (date.length() != 10) {
+      return false;
+    }
+
+    for (int i = 0; i < 10; i++) {
+      char c = date.charAt(i);
+      if ((i == 4) || (i == 7)) {
+        if (c != '-') {
+          return false;
+        }
+      }
+      else if ((c < '0') || (c > '9')) {
+        return false;
+      }
+    }
+
+    return true;
+  }
+
+  private static int digitsAt(String date, int start, int count) {
+    int value = 0;
+    for (int i = start; i < start + count; i++) {
+      value = (value * 10) + (date.charAt(i) - '0');
+    }
+
+    return value;
+  }
+
+  // reference check used for non-canonical input
+  private static boolean isValidSlow(String date) {
+    DateFormat format = new SimpleDateFormat("yyyy-MM-dd", Locale.ENGLISH);
+    format.setLenient(false);
+    try {
+      format.parse(date);
+    }
+    catch (ParseException e) {
+      return false;
+    }
+
+    return true;
+  }
+}
@@ -0,0 +1,262 @@
+//
+// EventJournal.java
+// Kochava Plugin
+//
+// Copyright (c) 2016 CoronaLabs inc. All rights reserved.
+//
+
+// @formatter:off
+
+package plugin.kochava;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only journal of logged events which have not been handed to the Kochava SDK yet.
+ * <p>
+ * The journal is a fixed-size memory-mapped file, so an append is a copy into the page cache which survives the
+ * process being killed. Each record holds a sequence number and is protected by a CRC. A checkpoint stores the
+ * sequence of the last event handed to the tracker; once every record is checkpointed the write position goes back
+ * to the start of the file, so in steady state only the first few pages are written. Records still pending when
+ * the file is full are moved to the start (compaction) before giving up and dropping the new event.
+ * <p>
+ * Layout: header {int magic, int version, long checkpoint}, then records {int length, int crc, long sequence,
+ * event}, terminated by a zero length.
+ */
+final class EventJournal
+{
+  private static final int MAGIC   = 0x4b564a31; // "KVJ1"
+  private static final int VERSION = 2;
+
+  private static final int CHECKPOINT_OFFSET   = 8;
+  private static final int DATA_START          = 16;
+  private static final int RECORD_HEADER_SIZE  = 8;  // length + crc
+  private static final int SEQUENCE_SIZE       = 8;
+  private static final int TERMINATOR_SIZE     = 4;
+
+  private final MappedByteBuffer buffer;
+  private final int capacity;
+
+  private int writePosition;
+  private long checkpointSequence;
+  private long lastSequence;
+  private long droppedCount = 0;
+
+  // events found on open which were never checkpointed
+  private final List<PreparedEvent> pendingEvents = new ArrayList<>();
+  private long pendingSequence;
+
+  // reused for serializing appended events
+  private final RecordBuffer recordBuffer = new RecordBuffer();
+  private final DataOutputStream recordOutput = new DataOutputStream(recordBuffer);
+  private final CRC32 crc = new CRC32();
+
+  private EventJournal(MappedByteBuffer buffer, int capacity) {
+    this.buffer = buffer;
+    this.capacity = capacity;
+  }
+
+  // open or create the journal file, reading the events which were not checkpointed
+  static EventJournal open(File file, int capacity) throws IOException {
+    MappedByteBuffer buffer;
+    RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+    try {
+      if (randomAccessFile.length() != capacity) {
+        randomAccessFile.setLength(capacity);
+      }
+      // the mapping stays valid after the file is closed
+      buffer = randomAccessFile.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+    }
+    finally {
+      randomAccessFile.close();
+    }
+
+    EventJournal journal = new EventJournal(buffer, capacity);
+    journal.load();
+
+    return journal;
+  }
+
+  private void load() {
+    if ((buffer.getInt(0) != MAGIC) || (buffer.getInt(4) != VERSION)) {
+      buffer.putInt(0, MAGIC);
+      buffer.putInt(4, VERSION);
+      buffer.putLong(CHECKPOINT_OFFSET, 0);
+      buffer.putInt(DATA_START, 0);
+    }
+
+    checkpointSequence = buffer.getLong(CHECKPOINT_OFFSET);
+    lastSequence = checkpointSequence;
+
+    // scan valid records, stopping at the terminator or at the first torn or stale record
+    int position = DATA_START;
+    long previousSequence = 0;
+    byte[] payload = new byte[0];
+    while (position + RECORD_HEADER_SIZE <= capacity) {
+      int length = buffer.getInt(position);
+      if ((length < SEQUENCE_SIZE) || (length > capacity - position - RECORD_HEADER_SIZE)) {
+        break;
+      }
+
+      if (payload.length < length) {
+        payload = new byte[length];
+      }
+      buffer.position(position + RECORD_HEADER_SIZE);
+      buffer.get(payload, 0, length);
+
+      crc.reset();
+      crc.update(payload, 0, length);
+      if ((int)crc.getValue() != buffer.getInt(position + 4)) {
+        break;
+      }
+
+      DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload, 0, length));
+      try {
+        long sequence = in.readLong();
+        if (sequence <= previousSequence) {
+          break;
+        }
+        previousSequence = sequence;
+
+        if (sequence > checkpointSequence) {
+          pendingEvents.add(PreparedEvent.readFrom(in));
+          pendingSequence = sequence;
+        }
+        lastSequence = Math.max(lastSequence, sequence);
+      }
+      catch (IOException ex) {
+        // unreadable event, skip it
+        ex.printStackTrace();
+      }
+
+      position += RECORD_HEADER_SIZE + length;
+    }
+
+    writePosition = position;
+    if (pendingEvents.isEmpty()) {
+      rewind();
+    }
+  }
+
+  // events left in the journal by a previous run, in the order they were logged
+  List<PreparedEvent> getPendingEvents() {
+    return Collections.unmodifiableList(pendingEvents);
+  }
+
+  // sequence to checkpoint once the pending events have been handed to the tracker
+  long getPendingSequence() {
+    return pendingSequence;
+  }
+
+  // append an event and return its sequence number, or 0 if it could not be journaled
+  synchronized long append(PreparedEvent event) {
+    long sequence = lastSequence + 1;
+
+    try {
+      recordBuffer.reset();
+      recordOutput.writeLong(sequence);
+      event.writeTo(recordOutput);
+    }
+    catch (IOException ex) {
+      // writing to the in-memory record buffer is not expected to fail, drop the event if it does
+      droppedCount++;
+      return 0;
+    }
+
+    int length = recordBuffer.size();
+    int recordSize = RECORD_HEADER_SIZE + length;
+
+    if (writePosition + recordSize + TERMINATOR_SIZE > capacity) {
+      compact();
+      if (writePosition + recordSize + TERMINATOR_SIZE > capacity) {
+        droppedCount++;
+        return 0;
+      }
+    }
+
+    crc.reset();
+    crc.update(recordBuffer.buffer(), 0, length);
+
+    // write the payload and the next terminator first, the length last
+    buffer.position(writePosition + RECORD_HEADER_SIZE);
+    buffer.put(recordBuffer.buffer(), 0, length);
+    buffer.putInt(writePosition + recordSize, 0);
+    buffer.putInt(writePosition + 4, (int)crc.getValue());
+    buffer.putInt(writePosition, length);
+
+    writePosition += recordSize;
+    lastSequence = sequence;
+
+    return sequence;
+  }
+
+  // mark every event up to the given sequence as handed to the tracker
+  synchronized void checkpoint(long sequence) {
+    if (sequence <= checkpointSequence) {
+      return;
+    }
+
+    buffer.putLong(CHECKPOINT_OFFSET, sequence);
+    checkpointSequence = sequence;
+
+    if (checkpointSequence >= lastSequence) {
+      rewind();
+    }
+  }
+
+  // number of events which did not fit in the journal
+  synchronized long getDroppedCount() {
+    return droppedCount;
+  }
+
+  private void rewind() {
+    buffer.putInt(DATA_START, 0);
+    writePosition = DATA_START;
+  }
+
+  // move the records which are not checkpointed yet to the start of the journal
+  private void compact() {
+    int position = DATA_START;
+    while (position < writePosition) {
+      if (buffer.getLong(position + RECORD_HEADER_SIZE) > checkpointSequence) {
+        break;
+      }
+      position += RECORD_HEADER_SIZE + buffer.getInt(position);
+    }
+
+    if (position == DATA_START) {
+      return;
+    }
+
+    int length = writePosition - position;
+    if (length > 0) {
+      byte[] records = new byte[length];
+      buffer.position(position);
+      buffer.get(records);
+      buffer.position(DATA_START);
+      buffer.put(records);
+    }
+
+    writePosition = DATA_START + length;
+    buffer.putInt(writePosition, 0);
+  }
+
+  // exposes the internal array so records can be copied without an extra allocation
+  private static final class RecordBuffer extends ByteArrayOutputStream {
+    byte[] buffer() {
+      return buf;
+    }
+  }
+}
@@ -0,0 +1,95 @@
+//
+// EventLimiter.java
+// Kochava Plugin
+//
+// Copyright (c) 2016 CoronaLabs inc. All rights reserved.
+//
+
+// @formatter:off
+
+package plugin.kochava;
+
+/**
+ * Sampling ratio and token-bucket rate limit of one event name, configured with the init() option eventLimits.
+ * <p>
+ * Events are checked before their options are decoded, so a rejected call costs a map lookup and a few arithmetic
+ * operations. Rejected events are counted and the counts are attached to the next event of the same name which is
+ * sent, so totals can be reconstructed from the events received by Kochava.
+ */
+final class EventLimiter
+{
+  static final int ACCEPTED     = 0;
+  static final int SAMPLED_OUT  = 1;
+  static final int RATE_LIMITED = 2;
+
+  // custom properties holding the number of events skipped since the previous one sent
+  static final String SAMPLED_OUT_KEY  = "sampledOutCount";
+  static final String RATE_LIMITED_KEY = "rateLimitedCount";
+
+  private final double sampleRate;
+  private final double tokensPerNano;
+  private final double burst;
+
+  private double tokens;
+  private long lastRefill;
+  private long randomState;
+
+  private int sampledOutCount = 0;
+  private int rateLimitedCount = 0;
+
+  // sampleRate is the fraction of events kept (1 keeps all), maxPerSecond 0 disables the rate limit
+  EventLimiter(double sampleRate, double maxPerSecond, double burst) {
+    this.sampleRate = sampleRate;
+    this.tokensPerNano = maxPerSecond / 1000000000.0;
+    this.burst = burst;
+    this.tokens = burst;
+    this.lastRefill = System.nanoTime();
+    this.randomState = lastRefill | 1;
+  }
+
+  // decide whether the next event is sent, returning ACCEPTED, SAMPLED_OUT or RATE_LIMITED
+  synchronized int acquire() {
+    // sampled out events don't use tokens
+    if ((sampleRate < 1) && (nextRandom() >= sampleRate)) {
+      sampledOutCount++;
+      return SAMPLED_OUT;
+    }
+
+    if (tokensPerNano > 0) {
+      long now = System.nanoTime();
+      tokens = Math.min(burst, tokens + ((now - lastRefill) * tokensPerNano));
+      lastRefill = now;
+
+      if (tokens < 1) {
+        rateLimitedCount++;
+        return RATE_LIMITED;
+      }
+      tokens -= 1;
+    }
+
+    return ACCEPTED;
+  }
+
+  // add the counts of events skipped since the last call to an accepted event, and clear them
+  synchronized void addSkippedCounts(EventSink sink) {
+    if (sampledOutCount > 0) {
+      sink.setCustomNumber(SAMPLED_OUT_KEY, sampledOutCount);
+      sampledOutCount = 0;
+    }
+    if (rateLimitedCount > 0) {
+      sink.setCustomNumber(RATE_LIMITED_KEY, rateLimitedCount);
+      rateLimitedCount = 0;
+    }
+  }
+
+  // uniform random number in [0, 1) (xorshift64*)
+  private double nextRandom() {
+    long x = randomState;
+    x ^= x >>> 12;
+    x ^= x << 25;
+    x ^= x >>> 27;
+    randomState = x;
+
+    return ((x * 0x2545F4914F6CDD1DL) >>> 11) * 0x1.0p-53;
+  }
+}
@@ -0,0 +1,34 @@
+//
+// EventSink.java
+// Kochava Plugin
+//
+// Copyright (c) 2016 CoronaLabs inc. All rights reserved.
+//
+
+// @formatter:off
+
+package plugin.kochava;
+
+import android.os.Bundle;
+
+/**
+ * Receives event properties as they are decoded from a Lua options table.
+ * <p>
+ * Values are passed unboxed, so a sink can either apply them directly to an event or record them for later.
+ */
+interface EventSink
+{
+  void setString(StandardProperty property, String value);
+
+  void setNumber(StandardProperty property, double value);
+
+  void setBoolean(StandardProperty property, boolean value);
+
+  void setBundle(StandardProperty property, Bundle value);
+
+  void setCustomString(String key, String value);
+
+  void setCustomNumber(String key, double value);
+
+  void setCustomBoolean(String key, boolean value);
+}
@@ -0,0 +1,128 @@
+//
+// IdentityLinkCache.java
+// Kochava Plugin
+//
+// Copyright (c) 2016 CoronaLabs inc. All rights reserved.
+//
+
+// @formatter:off
+
+package plugin.kochava;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Identity links last registered with the tracker, kept in memory and in a small file.
+ * <p>
+ * kochava.setIdentityLink() is typically called with the same values on every login, so only links whose value
+ * changed since they were last registered, in this run or a previous one, are forwarded to the tracker.
+ * The file is read and written on the plugin's file thread, or read by the first update if it comes first.
+ */
+final class IdentityLinkCache
+{
+  // links are written with PreparedEvent.writeString(), the earlier "KVIL" files used writeUTF() and are ignored
+  private static final int MAGIC = 0x4b564932; // "KVI2"
+
+  private final Map<String, String> links = new HashMap<>();
+  private volatile File file = null;
+  private boolean loaded = false;
+
+  // set the backing file, read by load()
+  void setFile(File file) {
+    this.file = file;
+  }
+
+  // read the links saved by a previous run, once the backing file is set
+  synchronized void load() {
+    File source = file;
+    if (loaded || (source == null)) {
+      return;
+    }
+    loaded = true;
+
+    if (! source.exists()) {
+      return;
+    }
+
+    try {
+      DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(source)));
+      try {
+        if (in.readInt() != MAGIC) {
+          return;
+        }
+
+        int count = in.readInt();
+        for (int i = 0; i < count; i++) {
+          String key = PreparedEvent.readString(in);
+          links.put(key, PreparedEvent.readString(in));
+        }
+      }
+      finally {
+        in.close();
+      }
+    }
+    catch (IOException ex) {
+      ex.printStackTrace();
+    }
+  }
+
+  // record the value of a link, returning true if it differs from the one last registered
+  synchronized boolean update(String key, String value) {
+    load();
+    return ! value.equals(links.put(key, value));
+  }
+
+  // save the links for the next run
+  void save() {
+    File target = file;
+    if (target == null) {
+      return;
+    }
+
+    String[] keys;
+    String[] values;
+    synchronized (this) {
+      keys = new String[links.size()];
+      values = new String[links.size()];
+      int i = 0;
+      for (Map.Entry<String, String> link: links.entrySet()) {
+        keys[i] = link.getKey();
+        values[i++] = link.getValue();
+      }
+    }
+
+    // write to a temporary file first so a partial write never replaces a good copy
+    File temp = new File(target.getPath() + ".tmp");
+    try {
+      DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)));
+      try {
+        out.writeInt(MAGIC);
+        out.writeInt(keys.length);
+        for (int i = 0; i < keys.length; i++) {
+          PreparedEvent.writeString(out, keys[i]);
+          PreparedEvent.writeString(out, values[i]);
+        }
+      }
+      finally {
+        out.close();
+      }
+
+      if (! temp.renameTo(target)) {
+        temp.delete();
+      }
+    }
+    catch (IOException ex) {
+      temp.delete();
+      ex.printStackTrace();
+    }
+  }
+}
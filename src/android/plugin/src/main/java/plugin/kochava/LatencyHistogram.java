@@ -0,0 +1,118 @@
+//
+// LatencyHistogram.java
+// Kochava Plugin
+//
+// Copyright (c) 2016 CoronaLabs inc. All rights reserved.
+//
+
+// @formatter:off
+
+package plugin.kochava;
+
+import com.naef.jnlua.LuaState;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free histogram of durations with fixed power-of-two buckets.
+ * <p>
+ * Bucket 0 counts durations under 1 microsecond, bucket i durations under 2^i microseconds and the last bucket
+ * everything from about one second. Recording is a shift and a few atomic adds, so it can stay on in release builds.
+ */
+final class LatencyHistogram
+{
+  private static final int BUCKET_COUNT = 22;
+
+  private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+  private final AtomicLong count = new AtomicLong(0);
+  private final AtomicLong totalNanos = new AtomicLong(0);
+  private final AtomicLong maxNanos = new AtomicLong(0);
+
+  // record a duration in nanoseconds
+  void record(long nanos) {
+    if (nanos < 0) {
+      nanos = 0;
+    }
+
+    int bucket = Math.min(64 - Long.numberOfLeadingZeros(nanos / 1000), BUCKET_COUNT - 1);
+    buckets.incrementAndGet(bucket);
+    count.incrementAndGet();
+    totalNanos.addAndGet(nanos);
+
+    long currentMax = maxNanos.get();
+    while ((nanos > currentMax) && (! maxNanos.compareAndSet(currentMax, nanos))) {
+      currentMax = maxNanos.get();
+    }
+  }
+
+  // push a table with count, mean, max, percentiles and non-empty buckets, in milliseconds
+  // when reset is true every value is read and cleared atomically, so no recording is lost
+  void push(LuaState L, boolean reset) {
+    long[] bucketCounts = new long[BUCKET_COUNT];
+    for (int i = 0; i < BUCKET_COUNT; i++) {
+      bucketCounts[i] = reset ? buckets.getAndSet(i, 0) : buckets.get(i);
+    }
+    long total = reset ? count.getAndSet(0) : count.get();
+    long sum = reset ? totalNanos.getAndSet(0) : totalNanos.get();
+    long max = reset ? maxNanos.getAndSet(0) : maxNanos.get();
+
+    L.newTable(0, 7);
+    L.pushNumber(total);
+    L.setField(-2, "count");
+    L.pushNumber((total > 0) ? (sum / (double)total) / 1000000.0 : 0);
+    L.setField(-2, "mean");
+    L.pushNumber(max / 1000000.0);
+    L.setField(-2, "max");
+    L.pushNumber(percentile(bucketCounts, total, max, 0.50));
+    L.setField(-2, "p50");
+    L.pushNumber(percentile(bucketCounts, total, max, 0.90));
+    L.setField(-2, "p90");
+    L.pushNumber(percentile(bucketCounts, total, max, 0.99));
+    L.setField(-2, "p99");
+
+    // array of {upTo = ms, count = n}
+    L.newTable();
+    int index = 0;
+    for (int i = 0; i < BUCKET_COUNT; i++) {
+      if (bucketCounts[i] == 0) {
+        continue;
+      }
+
+      L.newTable(0, 2);
+      L.pushNumber(upperBound(i));
+      L.setField(-2, "upTo");
+      L.pushNumber(bucketCounts[i]);
+      L.setField(-2, "count");
+      L.rawSet(-2, ++index);
+    }
+    L.setField(-2, "buckets");
+  }
+
+  // upper bound of a bucket in milliseconds
+  private static double upperBound(int bucket) {
+    if (bucket == BUCKET_COUNT - 1) {
+      return Double.POSITIVE_INFINITY;
+    }
+
+    return (1L << bucket) / 1000.0;
+  }
+
+  // estimate a percentile as the upper bound of the bucket it falls in, never more than the maximum
+  private static double percentile(long[] bucketCounts, long total, long max, double fraction) {
+    if (total == 0) {
+      return 0;
+    }
+
+    long rank = (long)Math.ceil(total * fraction);
+    long cumulative = 0;
+    for (int i = 0; i < BUCKET_COUNT; i++) {
+      cumulative += bucketCounts[i];
+      if (cumulative >= rank) {
+        return Math.min(upperBound(i), max / 1000000.0);
+      }
+    }
+
+    return max / 1000000.0;
+  }
+}
@@ -32,18 +32,20 @@ import com.naef.jnlua.LuaType;
 import com.naef.jnlua.NamedJavaFunction;
 import com.naef.jnlua.LuaState;
 
-import java.text.DateFormat;
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
-import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import android.os.Bundle;
-import android.util.EventLog;
-import android.util.Log;
+import android.os.Handler;
+import android.os.Looper;
 
 // Kochava imports
 
@@ -59,6 +61,7 @@ public class LuaLoader implements JavaFunction, CoronaRuntimeListener
   private static final String PLUGIN_NAME        = "plugin.kochava";
   private static final String PLUGIN_VERSION     = "3.0.1";
   private static final String PLUGIN_SDK_VERSION = "4.1.0";
+  private static final String VERSION_MESSAGE    = PLUGIN_NAME + ": " + PLUGIN_VERSION + " (SDK: " + PLUGIN_SDK_VERSION + ")";
 
   private static final String EVENT_NAME    = "analyticsRequest";
   private static final String PROVIDER_NAME = "kochava";
@@ -69,101 +72,97 @@ public class LuaLoader implements JavaFunction, CoronaRuntimeListener
   private static final String TYPE_DEEPLINK    = "deepLink";
   private static final String TYPE_ATTRIBUTION = "attribution";
   private static final String TYPE_CONSENT     = "consent";
-
-  private static final String STANDARD_TYPE_ACHIEVEMENT          = "achievement";
-  private static final String STANDARD_TYPE_ADVIEW               = "adView";
-  private static final String STANDARD_TYPE_ADDTOCART            = "addToCart";
-  private static final String STANDARD_TYPE_ADDTOWISHLIST        = "addToWishList";
-  private static final String STANDARD_TYPE_CHECKOUTSTART        = "checkoutStart";
-  private static final String STANDARD_TYPE_LEVELCOMPLETE        = "levelComplete";
-  private static final String STANDARD_TYPE_PURCHASE             = "purchase";
-  private static final String STANDARD_TYPE_PUSH_RECEIVED        = "pushReceived";
-  private static final String STANDARD_TYPE_PUSH_OPENED          = "pushOpened";
-  private static final String STANDARD_TYPE_RATING               = "rating";
-  private static final String STANDARD_TYPE_REGISTRATIONCOMPLETE = "registrationComplete";
-  private static final String STANDARD_TYPE_SEARCH               = "search";
-  private static final String STANDARD_TYPE_TUTORIALCOMPLETE     = "tutorialComplete";
-  private static final String STANDARD_TYPE_VIEW                 = "view";
-
-  // standard param properties
-  private static final String STANDARD_PROPERTY_ACTION               = "action";
-  private static final String STANDARD_PROPERTY_ADCAMPAIGNID         = "adCampaignId";
-  private static final String STANDARD_PROPERTY_ADCAMPAIGNNAME       = "adCampaignName";
-  private static final String STANDARD_PROPERTY_ADDEVICETYPE         = "adDeviceType";
-  private static final String STANDARD_PROPERTY_ADGROUPID            = "adGroupId";
-  private static final String STANDARD_PROPERTY_ADGROUPNAME          = "adGroupName";
-  private static final String STANDARD_PROPERTY_ADMEDIATIONNAME      = "adMediationName";
-  private static final String STANDARD_PROPERTY_ADNETWORKNAME        = "adNetworkName";
-  private static final String STANDARD_PROPERTY_ADPLACEMENT          = "adPlacement";
-  private static final String STANDARD_PROPERTY_ADSIZE               = "adSize";
-  private static final String STANDARD_PROPERTY_ADTYPE               = "adType";
-  private static final String STANDARD_PROPERTY_BACKGROUND           = "background";
-  private static final String STANDARD_PROPERTY_CHECKOUTASGUEST      = "checkoutAsGuest";
-  private static final String STANDARD_PROPERTY_COMPLETED            = "completed";
-  private static final String STANDARD_PROPERTY_CONTENTID            = "contentId";
-  private static final String STANDARD_PROPERTY_CONTENTTYPE          = "contentType";
-  private static final String STANDARD_PROPERTY_CURRENCY             = "currency";
-  private static final String STANDARD_PROPERTY_DATE                 = "date";
-  private static final String STANDARD_PROPERTY_DESCRIPTION          = "description";
-  private static final String STANDARD_PROPERTY_DESTINATION          = "destination";
-  private static final String STANDARD_PROPERTY_DURATIONTIMEINTERVAL = "durationTimeInterval";
-  private static final String STANDARD_PROPERTY_ENDDATE              = "endDate";
-  private static final String STANDARD_PROPERTY_ITEMADDEDFROM        = "itemAddedFrom";
-  private static final String STANDARD_PROPERTY_LEVEL                = "level";
-  private static final String STANDARD_PROPERTY_MAXRATING            = "maxRating";
-  private static final String STANDARD_PROPERTY_NAME                 = "name";
-  private static final String STANDARD_PROPERTY_ORDERID              = "orderId";
-  private static final String STANDARD_PROPERTY_ORIGIN               = "origin";
-  private static final String STANDARD_PROPERTY_PAYLOAD              = "payload";
-  private static final String STANDARD_PROPERTY_PRICE                = "price";
-  private static final String STANDARD_PROPERTY_QUANTITY             = "quantity";
-  private static final String STANDARD_PROPERTY_RATINGVALUE          = "ratingValue";
-  private static final String STANDARD_PROPERTY_RECEIPTID            = "receiptId";
-  private static final String STANDARD_PROPERTY_RECEIPTDATA          = "receiptData";
-  private static final String STANDARD_PROPERTY_RECEIPTDATASIGNATURE = "receiptDataSignature";
-  private static final String STANDARD_PROPERTY_REFERRALFROM         = "referralFrom";
-  private static final String STANDARD_PROPERTY_REGISTRATIONMETHOD   = "registrationMethod";
-  private static final String STANDARD_PROPERTY_RESULTS              = "results";
-  private static final String STANDARD_PROPERTY_SCORE                = "score";
-  private static final String STANDARD_PROPERTY_SEARCHTERM           = "searchTerm";
-  private static final String STANDARD_PROPERTY_SPATIAL_X            = "spatialX";
-  private static final String STANDARD_PROPERTY_SPATIAL_Y            = "spatialY";
-  private static final String STANDARD_PROPERTY_SPATIAL_Z            = "spatialZ";
-  private static final String STANDARD_PROPERTY_STARTDATE            = "startDate";
-  private static final String STANDARD_PROPERTY_SUCCESS              = "success";
-  private static final String STANDARD_PROPERTY_USERID               = "userId";
-  private static final String STANDARD_PROPERTY_USERNAME             = "userName";
-  private static final String STANDARD_PROPERTY_VALIDATED            = "validated";
-
-  // valid standard param types
-  private static final List<String> validStandardParamTypes = new ArrayList<>();
-
-  // valid standard param properties and expected type
-  private static final Map<String, Object> validStandardParamProperties = new HashMap<>();
+  private static final String TYPE_BATCH       = "batch";
+  private static final String TYPE_SUMMARY     = "summary";
 
   // event phases
   private static final String PHASE_INIT     = "init";
   private static final String PHASE_RECEIVED = "received";
   private static final String PHASE_RECORDED = "recorded";
 
+  // delivery modes for "recorded" events (init option recordedEvents)
+  private static final String RECORDED_EVENTS_EACH  = "each";
+  private static final String RECORDED_EVENTS_FRAME = "frame";
+  private static final String RECORDED_EVENTS_NONE  = "none";
+
   // add missing event keys
   private static final String EVENT_PHASE_KEY = "phase";
   private static final String EVENT_DATA_KEY  = "data";
   private static final String EVENT_TYPE_KEY  = "type";
+  private static final String EVENT_TIMINGS_KEY = "timings";
 
   // message constants
   private static final String CORONA_TAG  = "Corona";
-  private static final String ERROR_MSG   = "ERROR: ";
-  private static final String WARNING_MSG = "WARNING: ";
+
+  // level-gated console log, the last records are returned by getLogs()
+  private static final int LOG_CAPACITY = 100;
+  private static final PluginLogger logger = new PluginLogger(CORONA_TAG, LOG_CAPACITY);
 
   private static int coronaListener = CoronaLua.REFNIL;
   private static CoronaRuntimeTaskDispatcher coronaRuntimeTaskDispatcher = null;
 
-  private static String functionSignature = "";
+  // commands queued from Lua and run in order on the tracker thread (main UI thread unless changed by init)
+  private static final CommandQueue commandQueue = new CommandQueue(CommandQueue.mainThreadExecutor());
+  private static Executor backgroundExecutor = null;
+
+  // cache files are read and written on their own background thread, so they never block the UI or tracker thread
+  // a single thread keeps the writes of each file in order
+  private static Executor fileExecutor = null;
+
+  // validated calls made before the tracker has started, run right after startWithAppGuid
+  private static final int PRE_INIT_MAX_COMMANDS = 256;
+  private static final int PRE_INIT_MAX_BYTES    = 64 * 1024;
+  private static final PreInitBuffer preInitBuffer = new PreInitBuffer(PRE_INIT_MAX_COMMANDS, PRE_INIT_MAX_BYTES);
+
+  // approximate sizes of buffered commands
+  private static final int COMMAND_SIZE       = 16;
+  private static final int IDENTITY_LINK_SIZE = 64;
+
+  // durations of the phases of init()
+  private static final StartupTimings startupTimings = new StartupTimings();
+
+  // counters and latency histograms reported by getStats()
+  private static final PluginStats stats = new PluginStats();
 
+  // counters added to by increment(), sent as one event per name after an interval or a number of increments
+  private static final int COUNTER_FLUSH_INTERVAL  = 60;    // seconds
+  private static final int COUNTER_FLUSH_THRESHOLD = 1000;  // increments per event name
+  private static final CounterAggregator counterAggregator = new CounterAggregator();
+  private static final Handler counterFlushHandler = new Handler(Looper.getMainLooper());
+  private static final AtomicBoolean counterFlushScheduled = new AtomicBoolean(false);
 
-  private static Boolean hasUserConsent = false;
-  private static Boolean intelligentConsentManagement = false;
+  // install attribution cached in memory and on disk once received
+  private static final String ATTRIBUTION_FILE_NAME = "kochava_attribution.json";
+  private static final AttributionCache attributionCache = new AttributionCache();
+
+  // identity links last registered, so unchanged links are not registered again
+  private static final String IDENTITY_LINK_FILE_NAME = "kochava_identity_links.dat";
+  private static final IdentityLinkCache identityLinkCache = new IdentityLinkCache();
+
+  // optional journal of events not yet handed to the tracker (init option enableEventJournal)
+  private static final String JOURNAL_FILE_NAME = "kochava_events.journal";
+  private static final int    JOURNAL_CAPACITY  = 256 * 1024;
+  private static volatile EventJournal eventJournal = null;
+
+  // file of the optional filter of purchases already sent (init option deduplicatePurchases)
+  private static final String PURCHASE_FILTER_FILE_NAME = "kochava_purchases.filter";
+  private static final int    PURCHASE_FILTER_CAPACITY  = 1024;
+
+  // event templates created by prepareEvent(), only accessed from the Lua thread
+  // slots of events released by releasePreparedEvent() are null and reused by the next prepareEvent()
+  private static final List<PreparedEvent> preparedEvents = new ArrayList<>();
+  private static final List<Integer> releasedHandles = new ArrayList<>();
+
+
+  // counts of "recorded" events waiting for the next per-frame summary
+  private static final AtomicInteger recordedStandardCount = new AtomicInteger(0);
+  private static final AtomicInteger recordedCustomCount = new AtomicInteger(0);
+  private static final AtomicInteger recordedDeepLinkCount = new AtomicInteger(0);
+  private static final AtomicBoolean recordedSummaryScheduled = new AtomicBoolean(false);
+
+  // configuration set by init(), replaced as a whole
+  private static volatile PluginConfig config = new PluginConfig(RECORDED_EVENTS_EACH, Collections.<String, EventLimiter>emptyMap(),
+    COUNTER_FLUSH_INTERVAL * 1000L, COUNTER_FLUSH_THRESHOLD, PayloadConverter.Limits.DEFAULT, null, false, false);
 
   // -------------------------------------------------------
   // Plugin lifecycle events
@@ -204,11 +203,20 @@ public class LuaLoader implements JavaFunction, CoronaRuntimeListener
       new LimitAdTracking(),
       new LogDeeplinkEvent(),
       new LogEvent(),
+      new LogEvents(),
+      new PrepareEvent(),
+      new LogPreparedEvent(),
+      new ReleasePreparedEvent(),
+      new Increment(),
       new LogCustomEvent(),    // for backwards compatibility (use logEvent() instead)
       new LogStandardEvent(),  // for backwards compatibility (use logEvent() instead)
       new SetIdentityLink(),
             new GetVersion(),
-            new SetHasUserConsent()
+            new SetHasUserConsent(),
+            new GetQueueStats(),
+            new GetStartupTimings(),
+            new GetStats(),
+            new GetLogs()
     };
     String libName = L.toString(1);
     L.register(libName, luaFunctions);
@@ -233,70 +241,6 @@ public class LuaLoader implements JavaFunction, CoronaRuntimeListener
 
     if (coronaRuntimeTaskDispatcher == null) {
       coronaRuntimeTaskDispatcher = new CoronaRuntimeTaskDispatcher(runtime);
-
-      validStandardParamTypes.add(STANDARD_TYPE_ACHIEVEMENT);
-      validStandardParamTypes.add(STANDARD_TYPE_ADVIEW);
-      validStandardParamTypes.add(STANDARD_TYPE_ADDTOCART);
-      validStandardParamTypes.add(STANDARD_TYPE_ADDTOWISHLIST);
-      validStandardParamTypes.add(STANDARD_TYPE_CHECKOUTSTART);
-      validStandardParamTypes.add(STANDARD_TYPE_LEVELCOMPLETE);
-      validStandardParamTypes.add(STANDARD_TYPE_PURCHASE);
-      validStandardParamTypes.add(STANDARD_TYPE_PUSH_RECEIVED);
-      validStandardParamTypes.add(STANDARD_TYPE_PUSH_OPENED);
-      validStandardParamTypes.add(STANDARD_TYPE_RATING);
-      validStandardParamTypes.add(STANDARD_TYPE_REGISTRATIONCOMPLETE);
-      validStandardParamTypes.add(STANDARD_TYPE_SEARCH);
-      validStandardParamTypes.add(STANDARD_TYPE_TUTORIALCOMPLETE);
-      validStandardParamTypes.add(STANDARD_TYPE_VIEW);
-
-      validStandardParamProperties.put(STANDARD_PROPERTY_ACTION,               "String");
-      validStandardParamProperties.put(STANDARD_PROPERTY_ADCAMPAIGNID,         "String");
-      validStandardParamProperties.put(STANDARD_PROPERTY_ADCAMPAIGNNAME,       "String");
-      validStandardParamProperties.put(STANDARD_PROPERTY_ADDEVICETYPE,         "String");
-      validStandardParamProperties.put(STANDARD_PROPERTY_ADGROUPID,            "String");
-      validStandardParamProperties.put(STANDARD_PROPERTY_ADGROUPNAME,          "String");
-      validStandardParamProperties.put(STANDARD_PROPERTY_ADMEDIATIONNAME,      "String");
-      validStandardParamProperties.put(STANDARD_PROPERTY_ADNETWORKNAME,        "String");
-      validStandardParamProperties.put(STANDARD_PROPERTY_ADPLACEMENT,          "String");
-      validStandardParamProperties.put(STANDARD_PROPERTY_ADSIZE,               "String");
-      validStandardParamProperties.put(STANDARD_PROPERTY_ADTYPE,               "String");
-      validStandardParamProperties.put(STANDARD_PROPERTY_BACKGROUND,           "Boolean");
-      validStandardParamProperties.put(STANDARD_PROPERTY_CHECKOUTASGUEST,      "Boolean");
-      validStandardParamProperties.put(STANDARD_PROPERTY_COMPLETED,            "Boolean");
-      validStandardParamProperties.put(STANDARD_PROPERTY_CONTENTID,            "String");
-      validStandardParamProperties.put(STANDARD_PROPERTY_CONTENTTYPE,          "String");
-      validStandardParamProperties.put(STANDARD_PROPERTY_CURRENCY,             "String");
-      validStandardParamProperties.put(STANDARD_PROPERTY_DATE,                 "Date");
-      validStandardParamProperties.put(STANDARD_PROPERTY_DESCRIPTION,          "String");
-      validStandardParamProperties.put(STANDARD_PROPERTY_DESTINATION,          "String");
-      validStandardParamProperties.put(STANDARD_PROPERTY_DURATIONTIMEINTERVAL, "Interval");
-      validStandardParamProperties.put(STANDARD_PROPERTY_ENDDATE,              "Date");
-      validStandardParamProperties.put(STANDARD_PROPERTY_ITEMADDEDFROM,        "String");
-      validStandardParamProperties.put(STANDARD_PROPERTY_LEVEL,                "String");
-      validStandardParamProperties.put(STANDARD_PROPERTY_MAXRATING,            "Double");
-      validStandardParamProperties.put(STANDARD_PROPERTY_NAME,                 "String");
-      validStandardParamProperties.put(STANDARD_PROPERTY_ORDERID,              "String");
-      validStandardParamProperties.put(STANDARD_PROPERTY_ORIGIN,               "String");
-      validStandardParamProperties.put(STANDARD_PROPERTY_PAYLOAD,              "Table");
-      validStandardParamProperties.put(STANDARD_PROPERTY_PRICE,                "Double");
-      validStandardParamProperties.put(STANDARD_PROPERTY_QUANTITY,             "Double");
-      validStandardParamProperties.put(STANDARD_PROPERTY_RATINGVALUE,          "Double");
-      validStandardParamProperties.put(STANDARD_PROPERTY_RECEIPTID,            "String");
-      validStandardParamProperties.put(STANDARD_PROPERTY_RECEIPTDATA,          "String");
-      validStandardParamProperties.put(STANDARD_PROPERTY_RECEIPTDATASIGNATURE, "String");
-      validStandardParamProperties.put(STANDARD_PROPERTY_REFERRALFROM,         "String");
-      validStandardParamProperties.put(STANDARD_PROPERTY_REGISTRATIONMETHOD,   "String");
-      validStandardParamProperties.put(STANDARD_PROPERTY_RESULTS,              "String");
-      validStandardParamProperties.put(STANDARD_PROPERTY_SCORE,                "String");
-      validStandardParamProperties.put(STANDARD_PROPERTY_SEARCHTERM,           "String");
-      validStandardParamProperties.put(STANDARD_PROPERTY_SPATIAL_X,            "Double");
-      validStandardParamProperties.put(STANDARD_PROPERTY_SPATIAL_Y,            "Double");
-      validStandardParamProperties.put(STANDARD_PROPERTY_SPATIAL_Z,            "Double");
-      validStandardParamProperties.put(STANDARD_PROPERTY_STARTDATE,            "Date");
-      validStandardParamProperties.put(STANDARD_PROPERTY_SUCCESS,              "String");
-      validStandardParamProperties.put(STANDARD_PROPERTY_USERID,               "String");
-      validStandardParamProperties.put(STANDARD_PROPERTY_USERNAME,             "String");
-      validStandardParamProperties.put(STANDARD_PROPERTY_VALIDATED,            "String");
     }
   }
 
@@ -320,6 +264,8 @@ public class LuaLoader implements JavaFunction, CoronaRuntimeListener
    */
   @Override
   public void onSuspended(CoronaRuntime runtime) {
+    // the app may not come back, send the aggregated counters now
+    flushCounters();
   }
 
   /**
@@ -344,36 +290,42 @@ public class LuaLoader implements JavaFunction, CoronaRuntimeListener
    */
   @Override
   public void onExiting(final CoronaRuntime runtime) {
+    flushCounters();
+
     // reset class variables
     CoronaLua.deleteRef(runtime.getLuaState(), coronaListener);
     coronaListener = CoronaLua.REFNIL;
 
-    validStandardParamTypes.clear();
-    validStandardParamProperties.clear();
-
     coronaRuntimeTaskDispatcher = null;
-    functionSignature = "";
+    preparedEvents.clear();
+    releasedHandles.clear();
   }
 
   // --------------------------------------------------------------------------
   // helper functions
   // --------------------------------------------------------------------------
 
-  // log message to console
-  private void logMsg(String msgType, String errorMsg)
-  {
-    String functionID = functionSignature;
-    if (!functionID.isEmpty()) {
-      functionID += ", ";
-    }
+  // log a validation error and count it by reason
+  private void logValidationError(CallContext call, int reason, String errorMsg) {
+    logValidationError(call, reason, errorMsg, null);
+  }
+
+  // log a validation error followed by its detail, only formatted if errors are logged
+  private void logValidationError(CallContext call, int reason, String errorMsg, Object detail) {
+    stats.countFailure(reason);
+    logger.log(PluginLogger.LEVEL_ERROR, call, errorMsg, detail);
+  }
 
-    Log.i(CORONA_TAG, msgType + functionID + errorMsg);
+  // log a validation error made of two parts each followed by a detail, only formatted if errors are logged
+  private void logValidationError(CallContext call, int reason, String errorMsg, Object detail, String errorMsg2, Object detail2) {
+    stats.countFailure(reason);
+    logger.log(PluginLogger.LEVEL_ERROR, call, errorMsg, detail, errorMsg2, detail2);
   }
 
   // return true if SDK is properly initialized
-  private boolean isSDKInitialized() {
+  private boolean isSDKInitialized(CallContext call) {
     if (Tracker.getInstance().isStarted() == false) {
-      logMsg(ERROR_MSG, "kochava.init() must be called before calling other API functions");
+      logValidationError(call, PluginStats.FAILURE_NOT_INITIALIZED, "kochava.init() must be called before calling other API functions");
       return false;
     }
 
@@ -411,6 +363,7 @@ public class LuaLoader implements JavaFunction, CoronaRuntimeListener
             L.setField(-2, CoronaLuaEvent.PROVIDER_KEY);
 
             CoronaLua.dispatchEvent(L, coronaListener, 0);
+            stats.countCallback();
           }
           catch (Exception ex) {
             ex.printStackTrace();
@@ -420,172 +373,927 @@ public class LuaLoader implements JavaFunction, CoronaRuntimeListener
     }
   }
 
-  private void makeIdentityLink(Map<Object, Object> map) {
+  // dispatch a Lua event with the fixed fields emitted by this plugin (phase, type and string data)
+  // type and data are omitted from the event when null
+  private void dispatchLuaEvent(String phase, String type, String data) {
+    if (coronaRuntimeTaskDispatcher != null) {
+      coronaRuntimeTaskDispatcher.send(new PluginEvent(phase, type, data, 0, false));
+    }
+  }
+
+  // dispatch a Lua event with the fixed fields emitted by this plugin (phase, type and numeric data)
+  private void dispatchLuaEvent(String phase, String type, int data) {
+    if (coronaRuntimeTaskDispatcher != null) {
+      coronaRuntimeTaskDispatcher.send(new PluginEvent(phase, type, null, data, true));
+    }
+  }
+
+  // create a new plugin event on top of the Lua stack with its phase and optional type
+  private static void newPluginEvent(LuaState L, String phase, String type) {
+    CoronaLua.newEvent(L, EVENT_NAME);
+
+    L.pushString(phase);
+    L.setField(-2, EVENT_PHASE_KEY);
+
+    if (type != null) {
+      L.pushString(type);
+      L.setField(-2, EVENT_TYPE_KEY);
+    }
+  }
+
+  // add the common fields to the plugin event on top of the Lua stack and send it to our callback
+  private static void dispatchPluginEvent(LuaState L) throws Exception {
+    L.pushBoolean(false);
+    L.setField(-2, CoronaLuaEvent.ISERROR_KEY);
 
+    L.pushString(PROVIDER_NAME);
+    L.setField(-2, CoronaLuaEvent.PROVIDER_KEY);
 
-    for (Object key: map.keySet()) {
-      String keyString;
-      String valueString;
+    CoronaLua.dispatchEvent(L, coronaListener, 0);
+    stats.countCallback();
+  }
+
+  // Lua event with a fixed shape, pushed field by field on the Lua thread
+  private static final class PluginEvent implements CoronaRuntimeTask {
+    private final String phase;
+    private final String type;
+    private final String stringData;
+    private final int numberData;
+    private final boolean hasNumberData;
+
+    PluginEvent(String phase, String type, String stringData, int numberData, boolean hasNumberData) {
+      this.phase = phase;
+      this.type = type;
+      this.stringData = stringData;
+      this.numberData = numberData;
+      this.hasNumberData = hasNumberData;
+    }
 
-      Object value = map.get(key);
+    @Override
+    public void executeUsing(CoronaRuntime runtime) {
+      try {
+        LuaState L = runtime.getLuaState();
+        newPluginEvent(L, phase, type);
+
+        if (hasNumberData) {
+          L.pushInteger(numberData);
+          L.setField(-2, EVENT_DATA_KEY);
+        }
+        else if (stringData != null) {
+          L.pushString(stringData);
+          L.setField(-2, EVENT_DATA_KEY);
+        }
 
-      if (key instanceof String) {
-        keyString = (String)key;
+        dispatchPluginEvent(L);
       }
-      else {
-        keyString = key.toString();
+      catch (Exception ex) {
+        ex.printStackTrace();
+      }
+    }
+  }
+
+  // dispatch the "init" event with the device ID and the durations of the init phases
+  private void dispatchInitEvent(final String deviceId) {
+    if (coronaRuntimeTaskDispatcher != null) {
+      coronaRuntimeTaskDispatcher.send(new CoronaRuntimeTask() {
+        public void executeUsing(CoronaRuntime runtime) {
+          try {
+            LuaState L = runtime.getLuaState();
+            newPluginEvent(L, PHASE_INIT, null);
+
+            if (deviceId != null) {
+              L.pushString(deviceId);
+              L.setField(-2, EVENT_DATA_KEY);
+            }
+
+            startupTimings.push(L);
+            L.setField(-2, EVENT_TIMINGS_KEY);
+
+            dispatchPluginEvent(L);
+          }
+          catch (Exception ex) {
+            ex.printStackTrace();
+          }
+        }
+      });
+    }
+  }
+
+  // report an event recorded by Kochava according to the delivery mode selected in init()
+  private void dispatchRecordedEvent(String type) {
+    String recordedEvents = config.recordedEvents;
+    if (RECORDED_EVENTS_EACH.equals(recordedEvents)) {
+      dispatchLuaEvent(PHASE_RECORDED, type, null);
+    }
+    else if (RECORDED_EVENTS_FRAME.equals(recordedEvents)) {
+      countRecordedEvents(type, 1);
+    }
+  }
+
+  // add recorded events to the next per-frame summary, scheduling it if needed
+  private void countRecordedEvents(String type, int count) {
+    if (count == 0) {
+      return;
+    }
+
+    if (TYPE_STANDARD.equals(type)) {
+      recordedStandardCount.addAndGet(count);
+    }
+    else if (TYPE_DEEPLINK.equals(type)) {
+      recordedDeepLinkCount.addAndGet(count);
+    }
+    else {
+      recordedCustomCount.addAndGet(count);
+    }
+
+    if ((coronaRuntimeTaskDispatcher != null) && recordedSummaryScheduled.compareAndSet(false, true)) {
+      coronaRuntimeTaskDispatcher.send(new CoronaRuntimeTask() {
+        public void executeUsing(CoronaRuntime runtime) {
+          // events counted after this point go into the next summary
+          recordedSummaryScheduled.set(false);
+
+          int standardCount = recordedStandardCount.getAndSet(0);
+          int customCount = recordedCustomCount.getAndSet(0);
+          int deepLinkCount = recordedDeepLinkCount.getAndSet(0);
+
+          if ((standardCount + customCount + deepLinkCount) == 0) {
+            return;
+          }
+
+          try {
+            LuaState L = runtime.getLuaState();
+            newPluginEvent(L, PHASE_RECORDED, TYPE_SUMMARY);
+
+            // counts of recorded events per type
+            L.newTable(0, 3);
+            L.pushInteger(standardCount);
+            L.setField(-2, TYPE_STANDARD);
+            L.pushInteger(customCount);
+            L.setField(-2, TYPE_CUSTOM);
+            L.pushInteger(deepLinkCount);
+            L.setField(-2, TYPE_DEEPLINK);
+            L.setField(-2, EVENT_DATA_KEY);
+
+            dispatchPluginEvent(L);
+          }
+          catch (Exception ex) {
+            ex.printStackTrace();
+          }
+        }
+      });
+    }
+  }
+
+  // cache retrieved attribution and send it to Lua
+  private void onAttributionReceived(InstallAttributionApi installAttributionApi) {
+    String attribution = installAttributionApi.getRaw().toString();
+    attributionCache.put(attribution);
+    attributionCache.endRetrieval();
+    postFileTask(new Runnable() {
+      @Override
+      public void run() {
+        attributionCache.save();
       }
+    });
 
-      if (value instanceof String) {
-        valueString = (String)value;
+    // send Corona Lua event
+    dispatchLuaEvent(PHASE_RECEIVED, TYPE_ATTRIBUTION, attribution);
+  }
+
+  // register the identity links whose value changed since they were last registered
+  private void makeIdentityLink(String[] keys, String[] values) {
+    boolean changed = false;
+
+    for (int i = 0; i < keys.length; i++) {
+      if (identityLinkCache.update(keys[i], values[i])) {
+        Tracker.getInstance().registerIdentityLink(keys[i], values[i]);
+        stats.countIdentityLink(true);
+        changed = true;
       }
       else {
-        valueString = value.toString();
+        stats.countIdentityLink(false);
       }
-      Tracker.getInstance().registerIdentityLink(keyString, valueString);
-
     }
 
+    if (changed) {
+      postFileTask(new Runnable() {
+        @Override
+        public void run() {
+          identityLinkCache.save();
+        }
+      });
+    }
+  }
 
+  // string form of an identity link key or value at the given stack index, or null if it is not a string,
+  // number or boolean. Numbers are formatted without converting them in place, which would break next()
+  private static String toIdentityLinkString(LuaState luaState, int index) {
+    switch (luaState.type(index)) {
+      case STRING:
+        return luaState.toString(index);
+      case NUMBER:
+        double number = luaState.toNumber(index);
+        return (number == Math.rint(number)) ? Long.toString((long)number) : Double.toString(number);
+      case BOOLEAN:
+        return luaState.toBoolean(index) ? "true" : "false";
+      default:
+        return null;
+    }
   }
 
 
-  // -------------------------------------------------------
-  // plugin implementation
-  // -------------------------------------------------------
 
-  // [Lua] getAttributionData()
-  private class GetAttributionData implements NamedJavaFunction {
-    /**
-     * Gets the name of the Lua function as it would appear in the Lua script.
-     * @return Returns the name of the custom Lua function.
-     */
+  // event decoded from Lua and ready to be sent to Kochava
+  // decoded properties are applied to the event builder as they are read
+  // and also recorded when the event journal is enabled
+  private static class DecodedEvent implements EventSink {
+    EventApi eventApi;
+    boolean isCustomEvent;
+    PreparedEvent.Recorder recorder;
+    long journalSequence;
+    int approximateSize = COMMAND_SIZE;
+    int errorReason;
+    long callTime = System.nanoTime();
+    EventLimiter limiter;
+
+    // receipts are only referenced on the Lua thread and applied to the builder by the tracker command
+    String receiptData;
+    String dataSignature;
+
+    // purchase identifiers, kept as decoded so the purchase key is only hashed by the tracker command
+    String eventName;
+    boolean isPurchase;
+    String orderId;
+    String receiptId;
+
+    void setReceipt(String receiptData, String dataSignature) {
+      approximateSize += 2 * (receiptData.length() + dataSignature.length());
+      this.receiptData = receiptData;
+      this.dataSignature = dataSignature;
+    }
+
+    // build the event, applying the receipt if any, called on the tracker thread
+    EventApi build() {
+      if (receiptData != null) {
+        eventApi = eventApi.setGooglePlayReceipt(receiptData, dataSignature);
+        receiptData = null;
+        dataSignature = null;
+      }
+
+      return eventApi;
+    }
+
     @Override
-    public String getName() {
-      return "getAttributionData";
+    public void setString(StandardProperty property, String value) {
+      approximateSize += COMMAND_SIZE + (2 * value.length());
+      eventApi = property.setString(eventApi, value);
+      if (property == StandardEventSchema.PROPERTY_ORDER_ID) {
+        orderId = value;
+      }
+      else if (property == StandardEventSchema.PROPERTY_RECEIPT_ID) {
+        receiptId = value;
+      }
+      if (recorder != null) {
+        recorder.setString(property, value);
+      }
     }
 
-    /**
-     * This method is called when the Lua function is called.
-     * <p>
-     * Warning! This method is not called on the main UI thread.
-     * @param luaState Reference to the Lua state.
-     *                 Needed to retrieve the Lua function's parameters and to return values back to Lua.
-     * @return Returns the number of values to be returned by the Lua function.
-     */
     @Override
-    public int invoke( LuaState luaState ) {
-      functionSignature = "kochava.getAttributionData()";
+    public void setNumber(StandardProperty property, double value) {
+      approximateSize += COMMAND_SIZE;
+      eventApi = property.setNumber(eventApi, value);
+      if (recorder != null) {
+        recorder.setNumber(property, value);
+      }
+    }
 
-      if (!isSDKInitialized()) {
-        return 0;
+    @Override
+    public void setBoolean(StandardProperty property, boolean value) {
+      approximateSize += COMMAND_SIZE;
+      eventApi = property.setBoolean(eventApi, value);
+      if (recorder != null) {
+        recorder.setBoolean(property, value);
       }
+    }
 
-      final CoronaActivity coronaActivity = CoronaEnvironment.getCoronaActivity();
+    @Override
+    public void setBundle(StandardProperty property, Bundle value) {
+      approximateSize += COMMAND_SIZE;
+      eventApi = property.setBundle(eventApi, value);
+      if (recorder != null) {
+        recorder.setBundle(property, value);
+      }
+    }
 
-      if (coronaActivity == null) {
-        // bail of no valid activity
-        return 0;
+    @Override
+    public void setCustomString(String key, String value) {
+      approximateSize += COMMAND_SIZE + (2 * (key.length() + value.length()));
+      eventApi = eventApi.setCustomStringValue(key, value);
+      if (recorder != null) {
+        recorder.setCustomString(key, value);
       }
+    }
 
-      // check number of args
-      int nargs = luaState.getTop();
-      if (nargs != 0) {
-        logMsg(ERROR_MSG, "Expected no arguments, got " + nargs);
-        return 0;
+    @Override
+    public void setCustomNumber(String key, double value) {
+      approximateSize += COMMAND_SIZE + (2 * key.length());
+      eventApi = eventApi.setCustomNumberValue(key, value);
+      if (recorder != null) {
+        recorder.setCustomNumber(key, value);
       }
+    }
 
-      // Create a new runnable object to invoke our activity
-      Runnable runnableActivity = new Runnable() {
-        public void run() {
-          // get attribution data
+    @Override
+    public void setCustomBoolean(String key, boolean value) {
+      approximateSize += COMMAND_SIZE + (2 * key.length());
+      eventApi = eventApi.setCustomBoolValue(key, value);
+      if (recorder != null) {
+        recorder.setCustomBoolean(key, value);
+      }
+    }
+  }
 
+  // summary of the properties found in a Lua options table
+  private static class DecodedProperties {
+    int count;
+    boolean hasCustomProperties;
+    String receiptData;
+    String dataSignature;
+    String dateError;
+    int payloadSize;
+    int errorReason;
+  }
 
-          InstallAttributionApi currentInstallAttribution = Tracker.getInstance().getInstallAttribution();
-          if(!currentInstallAttribution.isRetrieved()) {
-            Tracker.getInstance().retrieveInstallAttribution(installAttributionApi -> {
-              // send Corona Lua event
-              Map<String, Object> coronaEvent = new HashMap<>();
-              coronaEvent.put(EVENT_PHASE_KEY, PHASE_RECEIVED);
-              coronaEvent.put(EVENT_TYPE_KEY, TYPE_ATTRIBUTION);
-              coronaEvent.put(EVENT_DATA_KEY, installAttributionApi.getRaw().toString());
-              dispatchLuaEvent(coronaEvent);
-            });
-          }
+  // decode the event type and options found at the given stack indexes
+  // properties are validated and applied to the event in a single pass over the options table
+  // returns null on success or an error message if validation fails
+  private String decodeEvent(LuaState luaState, int typeIndex, int optionsIndex, DecodedEvent decodedEvent) {
+    final String eventParamType;
 
-        }
-      };
+    // get event param type
+    if (luaState.type(typeIndex) == LuaType.STRING) {
+      eventParamType = luaState.toString(typeIndex);
+    }
+    else {
+      decodedEvent.errorReason = PluginStats.FAILURE_ARGUMENT_TYPE;
+      return "eventType (string) expected, got " + luaState.typeName(typeIndex);
+    }
+
+    // configure Kochava params
+    EventType eventType = StandardEventSchema.eventType(eventParamType);
+
+    if (eventType != null) {
+      decodedEvent.eventApi = Event.buildWithEventType(eventType);
+    }
+    else { // custom type
+      decodedEvent.eventApi = Event.buildWithEventName(eventParamType);
+    }
+    decodedEvent.eventName = eventParamType;
+    decodedEvent.isPurchase = (eventType == EventType.PURCHASE);
+
+    if (eventJournal != null) {
+      decodedEvent.recorder = new PreparedEvent.Recorder();
+    }
+
+    // get event param properties
+    DecodedProperties decodedProperties = new DecodedProperties();
+    String error = decodeProperties(luaState, optionsIndex, decodedEvent, decodedProperties);
+    if (error != null) {
+      decodedEvent.errorReason = decodedProperties.errorReason;
+      return error;
+    }
+
+    boolean isCustomEvent = (eventType == null) || decodedProperties.hasCustomProperties;
+
+    // standard events must have properties
+    if ((! isCustomEvent) && (decodedProperties.count == 0)) {
+      decodedEvent.errorReason = PluginStats.FAILURE_MISSING_PROPERTIES;
+      return "Standard events must have properties set";
+    }
+
+    if (decodedProperties.dateError != null) {
+      decodedEvent.errorReason = PluginStats.FAILURE_INVALID_DATE;
+      return decodedProperties.dateError;
+    }
+
+    // validation
+    if (decodedProperties.receiptData != null) {
+      if (decodedProperties.dataSignature == null) {
+        decodedEvent.errorReason = PluginStats.FAILURE_MISSING_RECEIPT_SIGNATURE;
+        return "receiptDataSignature must also be specified when providing receipt data";
+      }
+
+      decodedEvent.setReceipt(decodedProperties.receiptData, decodedProperties.dataSignature);
+    }
+
+    decodedEvent.isCustomEvent = isCustomEvent;
+    decodedEvent.approximateSize += decodedProperties.payloadSize;
+    if (decodedEvent.limiter != null) {
+      decodedEvent.limiter.addSkippedCounts(decodedEvent);
+    }
+    journalEvent(decodedEvent, eventParamType, eventType, decodedProperties.receiptData, decodedProperties.dataSignature);
+
+    return null;
+  }
+
+  // write a decoded event to the journal, where it stays until it has been handed to the tracker
+  private void journalEvent(DecodedEvent decodedEvent, String eventName, EventType eventType, String receiptData, String dataSignature) {
+    EventJournal journal = eventJournal;
+    if ((journal != null) && (decodedEvent.recorder != null)) {
+      PreparedEvent recordedEvent = decodedEvent.recorder.build(eventName, eventType, decodedEvent.isCustomEvent, receiptData, dataSignature);
+      decodedEvent.journalSequence = journal.append(recordedEvent);
+    }
+    decodedEvent.recorder = null;
+  }
+
+  // mark journaled events up to the given sequence as handed to the tracker
+  private void checkpointJournal(long journalSequence) {
+    EventJournal journal = eventJournal;
+    if ((journal != null) && (journalSequence != 0)) {
+      journal.checkpoint(journalSequence);
+    }
+  }
+
+  // sampling and rate limit of the event type found at the given stack index, or null if it has none
+  private EventLimiter findEventLimiter(LuaState luaState, int typeIndex) {
+    Map<String, EventLimiter> limiters = config.eventLimiters;
+    if (limiters.isEmpty() || (luaState.type(typeIndex) != LuaType.STRING)) {
+      return null;
+    }
+
+    return limiters.get(luaState.toString(typeIndex));
+  }
 
-      // Run the activity on the uiThread
-      coronaActivity.runOnUiThread(runnableActivity);
+  // returns false if the event is sampled out or rate limited, counting it as dropped
+  private boolean admitEvent(EventLimiter limiter) {
+    switch (limiter.acquire()) {
+      case EventLimiter.SAMPLED_OUT:
+        stats.countDropped(PluginStats.DROPPED_SAMPLED_OUT, 1);
+        return false;
+      case EventLimiter.RATE_LIMITED:
+        stats.countDropped(PluginStats.DROPPED_RATE_LIMITED, 1);
+        return false;
+      default:
+        return true;
+    }
+  }
 
+  // key of the purchase sent by a decoded event, or 0 if purchases are not filtered or it is not a purchase
+  // only purchase events and events carrying a receipt are purchases, an order ID alone is not enough
+  // called on the tracker thread before the event is built, so hashing stays off the Lua thread
+  private long purchaseKeyOf(DecodedEvent decodedEvent) {
+    if ((config.purchaseFilter == null) || ! (decodedEvent.isPurchase || (decodedEvent.receiptData != null))) {
       return 0;
     }
+
+    return PurchaseFilter.keyOf(decodedEvent.orderId, decodedEvent.receiptId, decodedEvent.receiptData);
   }
 
-  // [Lua] init(listener, params)
-  private class Init implements NamedJavaFunction {
-    /**
-     * Gets the name of the Lua function as it would appear in the Lua script.
-     * @return Returns the name of the custom Lua function.
-     */
-    @Override
-    public String getName() {
-      return "init";
+  // returns true if the purchase with the given key was already sent, counting and logging it as dropped
+  // called on the tracker thread, so a repeat still queued behind the first send is also caught
+  private boolean isDuplicatePurchase(long purchaseKey, String eventName) {
+    PurchaseFilter filter = config.purchaseFilter;
+    if ((filter != null) && (purchaseKey != 0) && filter.contains(purchaseKey)) {
+      stats.countDropped(PluginStats.DROPPED_DUPLICATE_PURCHASE, 1);
+      logger.log(PluginLogger.LEVEL_DEBUG, null, "Dropped purchase already sent: ", eventName);
+      return true;
     }
 
-    /**
-     * This method is called when the Lua function is called.
-     * <p>
-     * Warning! This method is not called on the main UI thread.
-     * @param luaState Reference to the Lua state.
-     *                 Needed to retrieve the Lua function's parameters and to return values back to Lua.
-     * @return Returns the number of values to be returned by the Lua function.
-     */
-    @Override
-    public int invoke(final LuaState luaState) {
-      // Parameters
-      String appGUID = null;
-      boolean limitAdTracking = false;
-      boolean enableDebug = false;
-      boolean enableAttributionData = false;
+    return false;
+  }
 
-      // prevent init from being called twice
-      if (Tracker.getInstance().isStarted()) {
-        return 0;
-      }
+  // remember a purchase once it has been handed to the tracker, called on the tracker thread
+  // a purchase lost before that point is not remembered, so the store replaying it is not dropped
+  private void recordPurchase(long purchaseKey) {
+    final PurchaseFilter filter = config.purchaseFilter;
+    if ((filter != null) && (purchaseKey != 0)) {
+      filter.add(purchaseKey);
+      postFileTask(new Runnable() {
+        @Override
+        public void run() {
+          filter.save();
+        }
+      });
+    }
+  }
 
-      functionSignature = "kochava.init(listener, options)";
+  // run a cache file read or write on the file thread, started on first use
+  private static synchronized void postFileTask(Runnable task) {
+    if (fileExecutor == null) {
+      fileExecutor = CommandQueue.backgroundThreadExecutor("KochavaFiles");
+    }
+    fileExecutor.execute(task);
+  }
 
-      // check number of args
-      int nargs = luaState.getTop();
-      if (nargs != 2) {
-        logMsg(ERROR_MSG, "Expected 2 arguments, got " + nargs);
-        return 0;
-      }
+  // decode the eventLimits init option found at the given stack index
+  // returns null on success or an error message if a limit is invalid
+  private String decodeEventLimits(LuaState luaState, int limitsIndex, Map<String, EventLimiter> limiters) {
+    if (luaState.type(limitsIndex) != LuaType.TABLE) {
+      return "options.eventLimits (table) expected, got " + luaState.typeName(limitsIndex);
+    }
 
-      // Get the listener (required)
-      if (CoronaLua.isListener(luaState, 1, PROVIDER_NAME)) {
-        coronaListener = CoronaLua.newRef(luaState, 1);
-      }
-      else {
-        logMsg(ERROR_MSG, "Listener expected, got: " + luaState.typeName(1));
-        return 0;
+    for (luaState.pushNil(); luaState.next(limitsIndex); luaState.pop(1)) {
+      String eventName = luaState.toString(-2);
+      String prefix = "options.eventLimits." + eventName;
+
+      if (luaState.type(-1) != LuaType.TABLE) {
+        return prefix + " (table) expected, got " + luaState.typeName(-1);
       }
 
-      // check for options table (required)
-      if (luaState.type(2) == LuaType.TABLE) {
-        // traverse and verify all options
-        for (luaState.pushNil(); luaState.next(2); luaState.pop(1)) {
-          String key = luaState.toString(-2);
+      double sampleRate = 1;
+      double maxPerSecond = 0;
+      double burst = 0;
 
-          if (key.equals("appId")) { // (for backward compatibility only. NEW: appGUID)
-            if (luaState.type(-1) == LuaType.STRING) {
-              appGUID = luaState.toString(-1);
-            }
-            else {
-              logMsg(ERROR_MSG, "options.appGUID (string) expected, got " + luaState.typeName(-1));
-              return 0;
+      int limitIndex = luaState.getTop();
+      for (luaState.pushNil(); luaState.next(limitIndex); luaState.pop(1)) {
+        String key = luaState.toString(-2);
+
+        if (luaState.type(-1) != LuaType.NUMBER) {
+          return prefix + "." + key + " (number) expected, got " + luaState.typeName(-1);
+        }
+        double value = luaState.toNumber(-1);
+
+        if (key.equals("sampleRate")) {
+          if ((value < 0) || (value > 1)) {
+            return prefix + ".sampleRate must be between 0 and 1, got " + value;
+          }
+          sampleRate = value;
+        }
+        else if (key.equals("maxPerSecond")) {
+          if (value <= 0) {
+            return prefix + ".maxPerSecond must be greater than 0, got " + value;
+          }
+          maxPerSecond = value;
+        }
+        else if (key.equals("burst")) {
+          if (value < 1) {
+            return prefix + ".burst must be at least 1, got " + value;
+          }
+          burst = value;
+        }
+        else {
+          return "Invalid option '" + prefix + "." + key + "'";
+        }
+      }
+
+      // by default, allow up to one second worth of events at once
+      if (burst == 0) {
+        burst = Math.max(1, maxPerSecond);
+      }
+
+      limiters.put(eventName, new EventLimiter(sampleRate, maxPerSecond, burst));
+    }
+
+    return null;
+  }
+
+  // decode the payloadLimits init option found at the given stack index into maxDepth, maxKeys and maxBytes
+  // returns null on success or an error message if a limit is invalid
+  private String decodePayloadLimits(LuaState luaState, int limitsIndex, int[] limits) {
+    if (luaState.type(limitsIndex) != LuaType.TABLE) {
+      return "options.payloadLimits (table) expected, got " + luaState.typeName(limitsIndex);
+    }
+
+    for (luaState.pushNil(); luaState.next(limitsIndex); luaState.pop(1)) {
+      String key = luaState.toString(-2);
+
+      if ((luaState.type(-1) != LuaType.NUMBER) || (luaState.toNumber(-1) < 1)) {
+        return "options.payloadLimits." + key + " (number >= 1) expected, got " + luaState.typeName(-1);
+      }
+      int value = (int)Math.min(luaState.toNumber(-1), Integer.MAX_VALUE);
+
+      if (key.equals("maxDepth")) {
+        limits[0] = value;
+      }
+      else if (key.equals("maxKeys")) {
+        limits[1] = value;
+      }
+      else if (key.equals("maxBytes")) {
+        limits[2] = value;
+      }
+      else {
+        return "Invalid option 'payloadLimits." + key + "'";
+      }
+    }
+
+    return null;
+  }
+
+  // validate the options table found at the given stack index and pass its properties to the sink
+  // receipt properties and invalid dates are returned in decodedProperties instead of being passed on
+  // returns null on success or an error message if a property has the wrong type
+  private String decodeProperties(LuaState luaState, int optionsIndex, EventSink sink, DecodedProperties decodedProperties) {
+    if (luaState.isNoneOrNil(optionsIndex)) {
+      return null;
+    }
+
+    if (luaState.type(optionsIndex) != LuaType.TABLE) {
+      decodedProperties.errorReason = PluginStats.FAILURE_ARGUMENT_TYPE;
+      return "options table expected, got " + luaState.typeName(optionsIndex);
+    }
+
+    // traverse, validate and apply all the properties
+    for (luaState.pushNil(); luaState.next(optionsIndex); luaState.pop(1)) {
+      String key = luaState.toString(-2);
+      StandardProperty property = StandardEventSchema.property(key);
+
+      if (property != null) {
+        // check variable type
+        if (luaState.type(-1) != property.valueType.luaType) {
+          decodedProperties.errorReason = PluginStats.FAILURE_PROPERTY_TYPE;
+          return "options." + key + " (" + property.valueType.luaTypeName + ") expected, got "+ luaState.typeName(-1);
+        }
+
+        decodedProperties.count++;
+
+        if (property == StandardEventSchema.PROPERTY_RECEIPT_DATA) {
+          decodedProperties.receiptData = luaState.toString(-1);
+          continue;
+        }
+        else if (property == StandardEventSchema.PROPERTY_RECEIPT_DATA_SIGNATURE) {
+          decodedProperties.dataSignature = luaState.toString(-1);
+          continue;
+        }
+
+        switch (property.valueType) {
+          case DATE:
+            // validate date
+            String dateCheck = luaState.toString(-1);
+
+            if (! DateValidator.isValid(dateCheck)) {
+              // type errors are reported first, so keep traversing
+              if (decodedProperties.dateError == null) {
+                decodedProperties.dateError = "options." + key + " Invalid format '" + dateCheck + "'. Valid format: yyyy-mm-dd";
+              }
+              continue;
+            }
+
+            sink.setString(property, dateCheck);
+            break;
+          case BOOLEAN:
+            sink.setBoolean(property, luaState.toBoolean(-1));
+            break;
+          case NUMBER:
+            sink.setNumber(property, luaState.toNumber(-1));
+            break;
+          case TABLE:
+            // convert the table straight to a bundle, within the payload limits
+            PayloadConverter converter = new PayloadConverter(config.payloadLimits);
+            Bundle bundle = converter.convert(luaState, luaState.getTop(), "options." + key);
+            if (bundle == null) {
+              decodedProperties.errorReason = converter.errorReason;
+              return converter.error;
+            }
+
+            decodedProperties.payloadSize += converter.getByteCount();
+            sink.setBundle(property, bundle);
+            break;
+          default:
+            sink.setString(property, luaState.toString(-1));
+            break;
+        }
+      }
+      else { // custom properties
+        decodedProperties.hasCustomProperties = true;
+        decodedProperties.count++;
+
+        if (luaState.type(-1) == LuaType.STRING) {
+          sink.setCustomString(key, luaState.toString(-1));
+        }
+        else if (luaState.type(-1) == LuaType.BOOLEAN) {
+          sink.setCustomBoolean(key, luaState.toBoolean(-1));
+        }
+        else if (luaState.type(-1) == LuaType.NUMBER) {
+          sink.setCustomNumber(key, luaState.toNumber(-1));
+        }
+        else {
+          decodedProperties.errorReason = PluginStats.FAILURE_PROPERTY_TYPE;
+          return "options." + key + " unhandled type ("+ luaState.typeName(-1) + ")";
+        }
+      }
+    }
+
+    return null;
+  }
+
+  // queue a command for the tracker thread
+  // commands issued before the tracker has started are held in the pre-init buffer instead
+  private void postTrackerCommand(Runnable command, int approximateSize) {
+    if (Tracker.getInstance().isStarted() || (! preInitBuffer.offer(command, approximateSize))) {
+      commandQueue.post(command);
+    }
+  }
+
+  // timed flush of the counters
+  private final Runnable counterFlushTask = new Runnable() {
+    @Override
+    public void run() {
+      flushCounters();
+    }
+  };
+
+  // send the counters of every event name and cancel the pending timed flush
+  private void flushCounters() {
+    counterFlushHandler.removeCallbacks(counterFlushTask);
+    counterFlushScheduled.set(false);
+    for (CounterAggregator.Counters counters: counterAggregator.removeAll()) {
+      sendCounters(counters);
+    }
+  }
+
+  // flush the counters after the configured interval unless a flush is already scheduled
+  private void scheduleCounterFlush() {
+    if (counterFlushScheduled.compareAndSet(false, true)) {
+      counterFlushHandler.postDelayed(counterFlushTask, config.counterFlushIntervalMillis);
+    }
+  }
+
+  // queue the counters of an event name to be sent to Kochava as one custom event
+  private void sendCounters(final CounterAggregator.Counters counters) {
+    postTrackerCommand(new Runnable() {
+      @Override
+      public void run() {
+        counters.newEventApi().send();
+        stats.countSent(PluginStats.SENT_CUSTOM);
+
+        // send Corona Lua event
+        dispatchRecordedEvent(TYPE_CUSTOM);
+      }
+    }, counters.approximateSize());
+  }
+
+  // queue a decoded event to be sent to Kochava, followed by its "recorded" Lua event
+  private void sendEvent(final DecodedEvent decodedEvent) {
+    postTrackerCommand(new Runnable() {
+      @Override
+      public void run() {
+        // drop purchases already sent
+        long purchaseKey = purchaseKeyOf(decodedEvent);
+        if (isDuplicatePurchase(purchaseKey, decodedEvent.eventName)) {
+          checkpointJournal(decodedEvent.journalSequence);
+          return;
+        }
+
+        // send parameters to Kochava
+        decodedEvent.build().send();
+        recordPurchase(purchaseKey);
+        stats.countSent(decodedEvent.isCustomEvent ? PluginStats.SENT_CUSTOM : PluginStats.SENT_STANDARD);
+        stats.recordCallToSend(decodedEvent.callTime);
+        checkpointJournal(decodedEvent.journalSequence);
+        // send Corona Lua event
+        dispatchRecordedEvent(decodedEvent.isCustomEvent ? TYPE_CUSTOM : TYPE_STANDARD);
+      }
+    }, decodedEvent.approximateSize);
+  }
+
+  // -------------------------------------------------------
+  // plugin implementation
+  // -------------------------------------------------------
+
+  // [Lua] getAttributionData()
+  private class GetAttributionData implements NamedJavaFunction {
+    private final CallContext call = new CallContext(PluginStats.CALL_GET_ATTRIBUTION_DATA, "kochava.getAttributionData()");
+
+    /**
+     * Gets the name of the Lua function as it would appear in the Lua script.
+     * @return Returns the name of the custom Lua function.
+     */
+    @Override
+    public String getName() {
+      return "getAttributionData";
+    }
+
+    /**
+     * This method is called when the Lua function is called.
+     * <p>
+     * Warning! This method is not called on the main UI thread.
+     * @param luaState Reference to the Lua state.
+     *                 Needed to retrieve the Lua function's parameters and to return values back to Lua.
+     * @return Returns the number of values to be returned by the Lua function.
+     */
+    @Override
+    public int invoke( LuaState luaState ) {
+      stats.countCall(call.function);
+
+      // check number of args
+      int nargs = luaState.getTop();
+      if (nargs != 0) {
+        logValidationError(call, PluginStats.FAILURE_ARGUMENT_COUNT, "Expected no arguments, got ", nargs);
+        return 0;
+      }
+
+      // return cached attribution synchronously, retrieving it once if not available yet
+      String attribution = attributionCache.get();
+
+      if ((attribution == null) && attributionCache.beginRetrieval()) {
+        Runnable runnableActivity = new Runnable() {
+          public void run() {
+            // get attribution data
+            InstallAttributionApi currentInstallAttribution = Tracker.getInstance().getInstallAttribution();
+            if (currentInstallAttribution.isRetrieved()) {
+              onAttributionReceived(currentInstallAttribution);
+            }
+            else {
+              Tracker.getInstance().retrieveInstallAttribution(installAttributionApi -> {
+                onAttributionReceived(installAttributionApi);
+              });
+            }
+          }
+        };
+
+        // Queue the command for the tracker thread
+        postTrackerCommand(runnableActivity, COMMAND_SIZE);
+      }
+
+      if (attribution != null) {
+        luaState.pushString(attribution);
+      }
+      else {
+        luaState.pushNil();
+      }
+
+      return 1;
+    }
+  }
+
+  // [Lua] init(listener, params)
+  private class Init implements NamedJavaFunction {
+    private final CallContext call = new CallContext(PluginStats.CALL_INIT, "kochava.init(listener, options)");
+
+    /**
+     * Gets the name of the Lua function as it would appear in the Lua script.
+     * @return Returns the name of the custom Lua function.
+     */
+    @Override
+    public String getName() {
+      return "init";
+    }
+
+    /**
+     * This method is called when the Lua function is called.
+     * <p>
+     * Warning! This method is not called on the main UI thread.
+     * @param luaState Reference to the Lua state.
+     *                 Needed to retrieve the Lua function's parameters and to return values back to Lua.
+     * @return Returns the number of values to be returned by the Lua function.
+     */
+    @Override
+    public int invoke(final LuaState luaState) {
+      // Parameters
+      String appGUID = null;
+      boolean limitAdTracking = false;
+      boolean enableDebug = false;
+      boolean enableAttributionData = false;
+      boolean useBackgroundThread = false;
+      String recordedEvents = RECORDED_EVENTS_EACH;
+      boolean enableEventJournal = false;
+      Map<String, EventLimiter> limiters = new HashMap<>();
+      double counterFlushInterval = COUNTER_FLUSH_INTERVAL;
+      int counterFlushThreshold = COUNTER_FLUSH_THRESHOLD;
+      boolean deduplicatePurchases = false;
+      boolean hasUserConsent = false;
+      boolean intelligentConsentManagement = false;
+      int logLevel = PluginLogger.LEVEL_INFO;
+      int[] payloadLimitValues = { PayloadConverter.MAX_DEPTH, PayloadConverter.MAX_KEYS, PayloadConverter.MAX_BYTES };
+
+      // prevent init from being called twice
+      if (Tracker.getInstance().isStarted()) {
+        return 0;
+      }
+
+      stats.countCall(call.function);
+
+      startupTimings.begin(StartupTimings.PARSE_OPTIONS, false);
+
+      // check number of args
+      int nargs = luaState.getTop();
+      if (nargs != 2) {
+        logValidationError(call, PluginStats.FAILURE_ARGUMENT_COUNT, "Expected 2 arguments, got ", nargs);
+        return 0;
+      }
+
+      // Get the listener (required)
+      if (CoronaLua.isListener(luaState, 1, PROVIDER_NAME)) {
+        coronaListener = CoronaLua.newRef(luaState, 1);
+      }
+      else {
+        logValidationError(call, PluginStats.FAILURE_ARGUMENT_TYPE, "Listener expected, got: ", luaState.typeName(1));
+        return 0;
+      }
+
+      // check for options table (required)
+      if (luaState.type(2) == LuaType.TABLE) {
+        // traverse and verify all options
+        for (luaState.pushNil(); luaState.next(2); luaState.pop(1)) {
+          String key = luaState.toString(-2);
+
+          if (key.equals("appId")) { // (for backward compatibility only. NEW: appGUID)
+            if (luaState.type(-1) == LuaType.STRING) {
+              appGUID = luaState.toString(-1);
+            }
+            else {
+              logValidationError(call, PluginStats.FAILURE_INVALID_OPTION, "options.appGUID (string) expected, got ", luaState.typeName(-1));
+              return 0;
             }
           }
           else if (key.equals("appGUID")) {
@@ -593,7 +1301,7 @@ public class LuaLoader implements JavaFunction, CoronaRuntimeListener
               appGUID = luaState.toString(-1);
             }
             else {
-              logMsg(ERROR_MSG, "options.appGUID (string) expected, got " + luaState.typeName(-1));
+              logValidationError(call, PluginStats.FAILURE_INVALID_OPTION, "options.appGUID (string) expected, got ", luaState.typeName(-1));
               return 0;
             }
           }
@@ -602,7 +1310,7 @@ public class LuaLoader implements JavaFunction, CoronaRuntimeListener
               limitAdTracking = luaState.toBoolean(-1);
             }
             else {
-              logMsg(ERROR_MSG, "options.limitAdTracking (boolean) expected, got " + luaState.typeName(-1));
+              logValidationError(call, PluginStats.FAILURE_INVALID_OPTION, "options.limitAdTracking (boolean) expected, got ", luaState.typeName(-1));
               return 0;
             }
           }
@@ -611,7 +1319,7 @@ public class LuaLoader implements JavaFunction, CoronaRuntimeListener
               enableDebug = luaState.toBoolean(-1);
             }
             else {
-              logMsg(ERROR_MSG, "options.enableDebugLogging (boolean) expected, got " + luaState.typeName(-1));
+              logValidationError(call, PluginStats.FAILURE_INVALID_OPTION, "options.enableDebugLogging (boolean) expected, got ", luaState.typeName(-1));
               return 0;
             }
           }
@@ -623,7 +1331,83 @@ public class LuaLoader implements JavaFunction, CoronaRuntimeListener
               enableAttributionData = luaState.toBoolean(-1);
             }
             else {
-              logMsg(ERROR_MSG, "options.enableAttributionData (boolean) expected, got " + luaState.typeName(-1));
+              logValidationError(call, PluginStats.FAILURE_INVALID_OPTION, "options.enableAttributionData (boolean) expected, got ", luaState.typeName(-1));
+              return 0;
+            }
+          }
+          else if (key.equals("useBackgroundThread")) {
+            if (luaState.type(-1) == LuaType.BOOLEAN) {
+              useBackgroundThread = luaState.toBoolean(-1);
+            }
+            else {
+              logValidationError(call, PluginStats.FAILURE_INVALID_OPTION, "options.useBackgroundThread (boolean) expected, got ", luaState.typeName(-1));
+              return 0;
+            }
+          }
+          else if (key.equals("enableEventJournal")) {
+            if (luaState.type(-1) == LuaType.BOOLEAN) {
+              enableEventJournal = luaState.toBoolean(-1);
+            }
+            else {
+              logValidationError(call, PluginStats.FAILURE_INVALID_OPTION, "options.enableEventJournal (boolean) expected, got ", luaState.typeName(-1));
+              return 0;
+            }
+          }
+          else if (key.equals("recordedEvents")) {
+            if (luaState.type(-1) == LuaType.STRING) {
+              String mode = luaState.toString(-1);
+
+              if (mode.equals(RECORDED_EVENTS_EACH) || mode.equals(RECORDED_EVENTS_FRAME) || mode.equals(RECORDED_EVENTS_NONE)) {
+                recordedEvents = mode;
+              }
+              else {
+                logValidationError(call, PluginStats.FAILURE_INVALID_OPTION, "options.recordedEvents must be '" + RECORDED_EVENTS_EACH + "', '" + RECORDED_EVENTS_FRAME + "' or '" + RECORDED_EVENTS_NONE + "', got '" + mode + "'");
+                return 0;
+              }
+            }
+            else {
+              logValidationError(call, PluginStats.FAILURE_INVALID_OPTION, "options.recordedEvents (string) expected, got ", luaState.typeName(-1));
+              return 0;
+            }
+          }
+          else if (key.equals("eventLimits")) {
+            String error = decodeEventLimits(luaState, luaState.getTop(), limiters);
+            if (error != null) {
+              logValidationError(call, PluginStats.FAILURE_INVALID_OPTION, error);
+              return 0;
+            }
+          }
+          else if (key.equals("counterFlushInterval")) {
+            if ((luaState.type(-1) == LuaType.NUMBER) && (luaState.toNumber(-1) > 0)) {
+              counterFlushInterval = luaState.toNumber(-1);
+            }
+            else {
+              logValidationError(call, PluginStats.FAILURE_INVALID_OPTION, "options.counterFlushInterval (positive number) expected, got ", luaState.typeName(-1));
+              return 0;
+            }
+          }
+          else if (key.equals("counterFlushThreshold")) {
+            if ((luaState.type(-1) == LuaType.NUMBER) && (luaState.toNumber(-1) >= 1)) {
+              counterFlushThreshold = (int)luaState.toNumber(-1);
+            }
+            else {
+              logValidationError(call, PluginStats.FAILURE_INVALID_OPTION, "options.counterFlushThreshold (number >= 1) expected, got ", luaState.typeName(-1));
+              return 0;
+            }
+          }
+          else if (key.equals("payloadLimits")) {
+            String error = decodePayloadLimits(luaState, luaState.getTop(), payloadLimitValues);
+            if (error != null) {
+              logValidationError(call, PluginStats.FAILURE_INVALID_OPTION, error);
+              return 0;
+            }
+          }
+          else if (key.equals("deduplicatePurchases")) {
+            if (luaState.type(-1) == LuaType.BOOLEAN) {
+              deduplicatePurchases = luaState.toBoolean(-1);
+            }
+            else {
+              logValidationError(call, PluginStats.FAILURE_INVALID_OPTION, "options.deduplicatePurchases (boolean) expected, got ", luaState.typeName(-1));
               return 0;
             }
           }
@@ -632,7 +1416,7 @@ public class LuaLoader implements JavaFunction, CoronaRuntimeListener
               hasUserConsent = luaState.toBoolean(-1);
             }
             else {
-              logMsg(ERROR_MSG, "options.hasUserConsent (boolean) expected, got " + luaState.typeName(-1));
+              logValidationError(call, PluginStats.FAILURE_INVALID_OPTION, "options.hasUserConsent (boolean) expected, got ", luaState.typeName(-1));
               return 0;
             }
           }
@@ -641,52 +1425,115 @@ public class LuaLoader implements JavaFunction, CoronaRuntimeListener
               intelligentConsentManagement = luaState.toBoolean(-1);
             }
             else {
-              logMsg(ERROR_MSG, "options.intelligentConsentManagement (boolean) expected, got " + luaState.typeName(-1));
+              logValidationError(call, PluginStats.FAILURE_INVALID_OPTION, "options.intelligentConsentManagement (boolean) expected, got ", luaState.typeName(-1));
+              return 0;
+            }
+          }
+          else if (key.equals("logLevel")) {
+            if (luaState.type(-1) == LuaType.STRING) {
+              String name = luaState.toString(-1);
+              logLevel = PluginLogger.levelOf(name);
+              if (logLevel < 0) {
+                logValidationError(call, PluginStats.FAILURE_INVALID_OPTION, "options.logLevel must be 'debug', 'info', 'warning', 'error' or 'none', got '" + name + "'");
+                return 0;
+              }
+            }
+            else {
+              logValidationError(call, PluginStats.FAILURE_INVALID_OPTION, "options.logLevel (string) expected, got ", luaState.typeName(-1));
               return 0;
             }
           }
           else {
-            logMsg(ERROR_MSG, "Invalid option '" + key + "'");
+            logValidationError(call, PluginStats.FAILURE_INVALID_OPTION, "Invalid option '" + key + "'");
             return 0;
           }
         }
       }
       else {
-        logMsg(ERROR_MSG, "options table expected, got " + luaState.typeName(2));
+        logValidationError(call, PluginStats.FAILURE_ARGUMENT_TYPE, "options table expected, got ", luaState.typeName(2));
         return 0;
       }
 
       // check required params
       if (appGUID == null) {
-        logMsg(ERROR_MSG, "options.appGUID is required");
+        logValidationError(call, PluginStats.FAILURE_INVALID_OPTION, "options.appGUID is required");
         return 0;
       }
 
       final CoronaActivity coronaActivity = CoronaEnvironment.getCoronaActivity();
 
+      PurchaseFilter purchaseFilter = null;
+      if (deduplicatePurchases && (coronaActivity != null)) {
+        purchaseFilter = new PurchaseFilter(new File(coronaActivity.getFilesDir(), PURCHASE_FILTER_FILE_NAME), PURCHASE_FILTER_CAPACITY);
+      }
+
+      // publish the validated options at once
+      final PluginConfig fConfig = new PluginConfig(recordedEvents, limiters,
+        (long)(counterFlushInterval * 1000), counterFlushThreshold,
+        new PayloadConverter.Limits(payloadLimitValues[0], payloadLimitValues[1], payloadLimitValues[2]),
+        purchaseFilter, hasUserConsent, intelligentConsentManagement);
+      config = fConfig;
+      logger.setLevel(logLevel);
+      startupTimings.end(StartupTimings.PARSE_OPTIONS, false);
+
+      // select the thread all Kochava SDK calls are made on
+      if (useBackgroundThread) {
+        if (backgroundExecutor == null) {
+          backgroundExecutor = CommandQueue.backgroundThreadExecutor("KochavaTracker");
+        }
+        commandQueue.setExecutor(backgroundExecutor);
+      }
+
       // make values final
       final String fAppGUID = appGUID;
       final boolean fLimitAdTracking = limitAdTracking;
       final boolean fEnableDebug = enableDebug;
+      final boolean fEnableEventJournal = enableEventJournal;
 
       if (coronaActivity != null) {
-        coronaActivity.runOnUiThread(new Runnable() {
+        startupTimings.begin(StartupTimings.QUEUE_WAIT, false);
+        commandQueue.post(new Runnable() {
           @Override
           public void run() {
+            startupTimings.end(StartupTimings.QUEUE_WAIT, false);
+
             // set plugin traffic detection
+            startupTimings.begin(StartupTimings.ADVANCED_INSTRUCTION, true);
             Tracker.getInstance().executeAdvancedInstruction("CoronaPlugin " + PLUGIN_VERSION, "");
-
-            Tracker.getInstance().retrieveInstallAttribution(new RetrievedInstallAttributionListener() {
+            startupTimings.end(StartupTimings.ADVANCED_INSTRUCTION, true);
+
+            // read the caches saved by a previous run on the file thread
+            // a setIdentityLink() or purchase check made before its file has been read waits for it or reads it itself
+            attributionCache.setFile(new File(coronaActivity.getFilesDir(), ATTRIBUTION_FILE_NAME));
+            identityLinkCache.setFile(new File(coronaActivity.getFilesDir(), IDENTITY_LINK_FILE_NAME));
+            final PurchaseFilter filter = fConfig.purchaseFilter;
+            postFileTask(new Runnable() {
               @Override
-              public void onRetrievedInstallAttribution(InstallAttributionApi installAttributionApi) {
-                Map<String, Object> coronaEvent = new HashMap<>();
-                coronaEvent.put(EVENT_PHASE_KEY, PHASE_RECEIVED);
-                coronaEvent.put(EVENT_TYPE_KEY, TYPE_ATTRIBUTION);
-                coronaEvent.put(EVENT_DATA_KEY, installAttributionApi.getRaw());
-                dispatchLuaEvent(coronaEvent);
+              public void run() {
+                startupTimings.begin(StartupTimings.LOAD_ATTRIBUTION, true);
+                attributionCache.load();
+                startupTimings.end(StartupTimings.LOAD_ATTRIBUTION, true);
+
+                identityLinkCache.load();
+                if (filter != null) {
+                  filter.load();
+                }
               }
             });
 
+            // the retrieval is skipped if getAttributionData() started one
+            boolean retrieveAttribution = attributionCache.beginRetrieval();
+
+            if (retrieveAttribution) {
+              startupTimings.begin(StartupTimings.RETRIEVE_ATTRIBUTION, true);
+              Tracker.getInstance().retrieveInstallAttribution(new RetrievedInstallAttributionListener() {
+                @Override
+                public void onRetrievedInstallAttribution(InstallAttributionApi installAttributionApi) {
+                  onAttributionReceived(installAttributionApi);
+                }
+              });
+              startupTimings.end(StartupTimings.RETRIEVE_ATTRIBUTION, true);
+            }
 
             if (fEnableDebug) {
               Tracker.getInstance().setLogLevel(LogLevel.DEBUG);
@@ -694,30 +1541,84 @@ public class LuaLoader implements JavaFunction, CoronaRuntimeListener
 
             // configure SDK
             Tracker.getInstance().setAppLimitAdTracking(fLimitAdTracking);
-            Tracker.getInstance().setIntelligentConsentGranted(intelligentConsentManagement || hasUserConsent);
+            Tracker.getInstance().setIntelligentConsentGranted(fConfig.intelligentConsentManagement || fConfig.hasUserConsent);
+
+            // open the journal before starting so events logged as soon as the tracker is started are journaled
+            EventJournal journal = null;
+            if (fEnableEventJournal) {
+              startupTimings.begin(StartupTimings.OPEN_EVENT_JOURNAL, true);
+              try {
+                journal = EventJournal.open(new File(coronaActivity.getFilesDir(), JOURNAL_FILE_NAME), JOURNAL_CAPACITY);
+                eventJournal = journal;
+              }
+              catch (IOException ex) {
+                logger.log(PluginLogger.LEVEL_WARNING, null, "Event journal disabled: ", ex.getMessage());
+              }
+              startupTimings.end(StartupTimings.OPEN_EVENT_JOURNAL, true);
+            }
+
+            startupTimings.begin(StartupTimings.START_WITH_APP_GUID, true);
             Tracker.getInstance().startWithAppGuid(coronaActivity.getApplicationContext(),fAppGUID);
+            startupTimings.end(StartupTimings.START_WITH_APP_GUID, true);
+
+            // send events left in the journal by a previous run
+            if (journal != null) {
+              startupTimings.begin(StartupTimings.REPLAY_EVENT_JOURNAL, true);
+              for (PreparedEvent pendingEvent: journal.getPendingEvents()) {
+                // a purchase sent just before the previous run ended may still be in the journal
+                long purchaseKey = 0;
+                if ((fConfig.purchaseFilter != null) && ((pendingEvent.eventType == EventType.PURCHASE) || (pendingEvent.receiptData != null))) {
+                  purchaseKey = PurchaseFilter.keyOf(pendingEvent.getString(StandardEventSchema.PROPERTY_ORDER_ID),
+                          pendingEvent.getString(StandardEventSchema.PROPERTY_RECEIPT_ID), pendingEvent.receiptData);
+                }
+                if (isDuplicatePurchase(purchaseKey, pendingEvent.eventName)) {
+                  continue;
+                }
+
+                EventApi eventApi = pendingEvent.newEventApi();
+                if ((pendingEvent.receiptData != null) && (pendingEvent.dataSignature != null)) {
+                  eventApi = eventApi.setGooglePlayReceipt(pendingEvent.receiptData, pendingEvent.dataSignature);
+                }
+                eventApi.send();
+                recordPurchase(purchaseKey);
+                stats.countSent(pendingEvent.isCustomEvent ? PluginStats.SENT_CUSTOM : PluginStats.SENT_STANDARD);
+              }
+              journal.checkpoint(journal.getPendingSequence());
+              startupTimings.end(StartupTimings.REPLAY_EVENT_JOURNAL, true);
+            }
+
+            // run the calls made before the tracker was started, in order
+            startupTimings.begin(StartupTimings.DRAIN_PRE_INIT_BUFFER, true);
+            Runnable[] preInitCommands = preInitBuffer.drain();
+            stats.countDropped(PluginStats.DROPPED_PRE_INIT_OVERFLOW, preInitBuffer.getOverflowCount());
+            for (Runnable command: preInitCommands) {
+              try {
+                command.run();
+              }
+              catch (Exception ex) {
+                ex.printStackTrace();
+              }
+            }
+            startupTimings.end(StartupTimings.DRAIN_PRE_INIT_BUFFER, true);
 
             // Log plugin version to device log
-            Log.i(CORONA_TAG, PLUGIN_NAME + ": " + PLUGIN_VERSION + " (SDK: " + PLUGIN_SDK_VERSION + ")");
+            logger.log(PluginLogger.LEVEL_INFO, null, VERSION_MESSAGE);
 
             // send Corona Lua event
-            Map<String, Object> coronaEvent = new HashMap<>();
-            coronaEvent.put(EVENT_PHASE_KEY, PHASE_INIT);
-            coronaEvent.put(EVENT_DATA_KEY, Tracker.getInstance().getDeviceId());
-            dispatchLuaEvent(coronaEvent);
+            startupTimings.begin(StartupTimings.GET_DEVICE_ID, true);
+            String deviceId = Tracker.getInstance().getDeviceId();
+            startupTimings.end(StartupTimings.GET_DEVICE_ID, true);
+
+            dispatchInitEvent(deviceId);
 
 
             // Check if we know our consent status from a previous launch.
 
-            if (!intelligentConsentManagement) {
-              Tracker.getInstance().setIntelligentConsentGranted(hasUserConsent);
+            if (!fConfig.intelligentConsentManagement) {
+              Tracker.getInstance().setIntelligentConsentGranted(fConfig.hasUserConsent);
             } else {
               // send Corona Lua event
-              Map<String, Object> coronaConsentEvent = new HashMap<>();
-              coronaConsentEvent.put(EVENT_PHASE_KEY, PHASE_RECEIVED);
-              coronaConsentEvent.put(EVENT_TYPE_KEY, TYPE_CONSENT);
-              coronaConsentEvent.put(EVENT_DATA_KEY, "Should prompt for user consent");
-              dispatchLuaEvent(coronaConsentEvent);
+              dispatchLuaEvent(PHASE_RECEIVED, TYPE_CONSENT, "Should prompt for user consent");
             }
           }
         });
@@ -730,6 +1631,8 @@ public class LuaLoader implements JavaFunction, CoronaRuntimeListener
   // [Lua] kochava.getVersion()
   private class GetVersion implements NamedJavaFunction
   {
+    private final CallContext call = new CallContext(PluginStats.CALL_GET_VERSION, "kochava.getVersion()");
+
     // Gets the name of the Lua function as it would appear in the Lua script
     @Override
     public String getName()
@@ -741,35 +1644,166 @@ public class LuaLoader implements JavaFunction, CoronaRuntimeListener
     @Override
     public int invoke(LuaState luaState)
     {
-      functionSignature = "kochava.getVersion()";
+      stats.countCall(call.function);
 
-      if (! isSDKInitialized()) {
+      if (! isSDKInitialized(call)) {
         return 0;
       }
 
-      // declare final vars for inner loop
-      final CoronaActivity coronaActivity = CoronaEnvironment.getCoronaActivity();
+      commandQueue.post(new Runnable() {
+        @Override
+        public void run() {
+          logger.log(PluginLogger.LEVEL_INFO, null, VERSION_MESSAGE);
+          // Dispatch the Lua event
+          HashMap<String, Object> event = new HashMap<>();
+          event.put("pluginVersion", PLUGIN_VERSION);
+          event.put("sdkVersion", PLUGIN_SDK_VERSION);
+          dispatchLuaEvent(event);
+        }
+      });
 
-      if (coronaActivity != null) {
-        coronaActivity.runOnUiThread(new Runnable() {
-          @Override
-          public void run() {
-            Log.i(CORONA_TAG, PLUGIN_NAME + ": " + PLUGIN_VERSION + " (SDK: " + PLUGIN_SDK_VERSION + ")");
-            // Dispatch the Lua event
-            HashMap<String, Object> event = new HashMap<>();
-            event.put("pluginVersion", PLUGIN_VERSION);
-            event.put("sdkVersion", PLUGIN_SDK_VERSION);
-            dispatchLuaEvent(event);
-          }
-        });
+      return 0;
+    }
+  }
+
+  // [Lua] kochava.getQueueStats()
+  private class GetQueueStats implements NamedJavaFunction
+  {
+    private final CallContext call = new CallContext(PluginStats.CALL_GET_QUEUE_STATS, "kochava.getQueueStats()");
+
+    // Gets the name of the Lua function as it would appear in the Lua script
+    @Override
+    public String getName()
+    {
+      return "getQueueStats";
+    }
+
+    // This method is executed when the Lua function is called
+    @Override
+    public int invoke(LuaState luaState)
+    {
+      stats.countCall(call.function);
+
+      // return command queue and pre-init buffer metrics
+      luaState.newTable(0, 8);
+      luaState.pushInteger(commandQueue.getDepth());
+      luaState.setField(-2, "depth");
+      luaState.pushInteger(commandQueue.getMaxDepth());
+      luaState.setField(-2, "maxDepth");
+      luaState.pushNumber(commandQueue.getPostCount());
+      luaState.setField(-2, "posted");
+      luaState.pushNumber(commandQueue.getDrainCount());
+      luaState.setField(-2, "drains");
+      luaState.pushInteger(preInitBuffer.getCount());
+      luaState.setField(-2, "preInitDepth");
+      luaState.pushInteger(preInitBuffer.getBytes());
+      luaState.setField(-2, "preInitBytes");
+      luaState.pushNumber(preInitBuffer.getOverflowCount());
+      luaState.setField(-2, "preInitOverflow");
+      luaState.pushNumber(preInitBuffer.getOverflowBytes());
+      luaState.setField(-2, "preInitOverflowBytes");
+
+      return 1;
+    }
+  }
+
+  // [Lua] kochava.getStartupTimings()
+  private class GetStartupTimings implements NamedJavaFunction
+  {
+    private final CallContext call = new CallContext(PluginStats.CALL_GET_STARTUP_TIMINGS, "kochava.getStartupTimings()");
+
+    // Gets the name of the Lua function as it would appear in the Lua script
+    @Override
+    public String getName()
+    {
+      return "getStartupTimings";
+    }
+
+    // This method is executed when the Lua function is called
+    @Override
+    public int invoke(LuaState luaState)
+    {
+      stats.countCall(call.function);
+
+      // return durations of the init phases completed so far
+      startupTimings.push(luaState);
+
+      return 1;
+    }
+  }
+
+  // [Lua] kochava.getStats([reset])
+  private class GetStats implements NamedJavaFunction
+  {
+    private final CallContext call = new CallContext(PluginStats.CALL_GET_STATS, "kochava.getStats([reset])");
+
+    // Gets the name of the Lua function as it would appear in the Lua script
+    @Override
+    public String getName()
+    {
+      return "getStats";
+    }
+
+    // This method is executed when the Lua function is called
+    @Override
+    public int invoke(LuaState luaState)
+    {
+      stats.countCall(call.function);
+
+      // check number or args
+      int nargs = luaState.getTop();
+      if (nargs > 1) {
+        logValidationError(call, PluginStats.FAILURE_ARGUMENT_COUNT, "Expected 0 or 1 argument, got ", nargs);
+        return 0;
       }
 
-      return 0;
+      boolean reset = false;
+      if (! luaState.isNoneOrNil(1)) {
+        if (luaState.type(1) == LuaType.BOOLEAN) {
+          reset = luaState.toBoolean(1);
+        }
+        else {
+          logValidationError(call, PluginStats.FAILURE_ARGUMENT_TYPE, "reset (boolean) expected, got ", luaState.typeName(1));
+          return 0;
+        }
+      }
+
+      // return counters and latency histograms, clearing them if requested
+      stats.push(luaState, commandQueue.getCommandTimes(), reset);
+
+      return 1;
+    }
+  }
+
+  // [Lua] kochava.getLogs()
+  private class GetLogs implements NamedJavaFunction
+  {
+    private final CallContext call = new CallContext(PluginStats.CALL_GET_LOGS, "kochava.getLogs()");
+
+    // Gets the name of the Lua function as it would appear in the Lua script
+    @Override
+    public String getName()
+    {
+      return "getLogs";
+    }
+
+    // This method is executed when the Lua function is called
+    @Override
+    public int invoke(LuaState luaState)
+    {
+      stats.countCall(call.function);
+
+      // return the last messages logged by the plugin, oldest first
+      logger.push(luaState);
+
+      return 1;
     }
   }
 
   // [Lua] limitAdTracking(setting)
   private class LimitAdTracking implements NamedJavaFunction {
+    private final CallContext call = new CallContext(PluginStats.CALL_LIMIT_AD_TRACKING, "kochava.limitAdTracking(setting)");
+
     /**
      * Gets the name of the Lua function as it would appear in the Lua script.
      * @return Returns the name of the custom Lua function.
@@ -791,16 +1825,16 @@ public class LuaLoader implements JavaFunction, CoronaRuntimeListener
     public int invoke( LuaState luaState ) {
       final boolean limitTracking;
 
-      functionSignature = "kochava.limitAdTracking(setting)";
+      stats.countCall(call.function);
 
-      if (!isSDKInitialized()) {
+      if (!isSDKInitialized(call)) {
         return 0;
       }
 
       // check number or args
       int nargs = luaState.getTop();
       if (nargs != 1) {
-        logMsg(ERROR_MSG, "Expected 1 argument, got " + nargs);
+        logValidationError(call, PluginStats.FAILURE_ARGUMENT_COUNT, "Expected 1 argument, got ", nargs);
         return 0;
       }
 
@@ -809,21 +1843,17 @@ public class LuaLoader implements JavaFunction, CoronaRuntimeListener
         limitTracking = luaState.toBoolean(1);
       }
       else {
-        logMsg(ERROR_MSG, "'setting' (boolean) expected, got " + luaState.typeName(1));
+        logValidationError(call, PluginStats.FAILURE_ARGUMENT_TYPE, "'setting' (boolean) expected, got ", luaState.typeName(1));
         return 0;
       }
 
-      final CoronaActivity coronaActivity = CoronaEnvironment.getCoronaActivity();
-
-      if (coronaActivity != null) {
-        coronaActivity.runOnUiThread(new Runnable() {
-          @Override
-          public void run() {
-            // send adTracking setting to Kochava
-            Tracker.getInstance().setAppLimitAdTracking(limitTracking);
-          }
-        });
-      }
+      commandQueue.post(new Runnable() {
+        @Override
+        public void run() {
+          // send adTracking setting to Kochava
+          Tracker.getInstance().setAppLimitAdTracking(limitTracking);
+        }
+      });
 
       return 0;
     }
@@ -831,6 +1861,8 @@ public class LuaLoader implements JavaFunction, CoronaRuntimeListener
 
   // [Lua] logDeeplinkEvent(URL, sourceApp)
   private class LogDeeplinkEvent implements NamedJavaFunction {
+    private final CallContext call = new CallContext(PluginStats.CALL_LOG_DEEPLINK_EVENT, "kochava.logDeeplinkEvent(URL, sourceApp)");
+
     /**
      * Gets the name of the Lua function as it would appear in the Lua script.
      * @return Returns the name of the custom Lua function.
@@ -853,16 +1885,13 @@ public class LuaLoader implements JavaFunction, CoronaRuntimeListener
       final String URL;
       final String sourceAppParams;
 
-      functionSignature = "kochava.logDeeplinkEvent(URL, sourceApp)";
-
-      if (!isSDKInitialized()) {
-        return 0;
-      }
+      stats.countCall(call.function);
+      final long callTime = System.nanoTime();
 
       // check number or args
       int nargs = luaState.getTop();
       if (nargs != 2) {
-        logMsg(ERROR_MSG, "Expected 2 arguments, got " + nargs);
+        logValidationError(call, PluginStats.FAILURE_ARGUMENT_COUNT, "Expected 2 arguments, got ", nargs);
         return 0;
       }
 
@@ -871,7 +1900,7 @@ public class LuaLoader implements JavaFunction, CoronaRuntimeListener
         URL = luaState.toString(1);
       }
       else {
-        logMsg(ERROR_MSG, "URL (string) expected, got " + luaState.typeName(1));
+        logValidationError(call, PluginStats.FAILURE_ARGUMENT_TYPE, "URL (string) expected, got ", luaState.typeName(1));
         return 0;
       }
 
@@ -880,27 +1909,22 @@ public class LuaLoader implements JavaFunction, CoronaRuntimeListener
         sourceAppParams = luaState.toString(2);
       }
       else {
-        logMsg(ERROR_MSG, "sourceApp (string) expected, got " + luaState.typeName(2));
+        logValidationError(call, PluginStats.FAILURE_ARGUMENT_TYPE, "sourceApp (string) expected, got ", luaState.typeName(2));
         return 0;
       }
 
-      final CoronaActivity coronaActivity = CoronaEnvironment.getCoronaActivity();
-
-      if (coronaActivity != null) {
-        coronaActivity.runOnUiThread(new Runnable() {
-          @Override
-          public void run() {
-            // send deep link event to Kochava
-            Event.buildWithEventType(EventType.DEEPLINK).setUri(URL).send();
+      postTrackerCommand(new Runnable() {
+        @Override
+        public void run() {
+          // send deep link event to Kochava
+          Event.buildWithEventType(EventType.DEEPLINK).setUri(URL).send();
+          stats.countSent(PluginStats.SENT_DEEPLINK);
+          stats.recordCallToSend(callTime);
 
-            // send Corona Lua event
-            Map<String, Object> coronaEvent = new HashMap<>();
-            coronaEvent.put(EVENT_PHASE_KEY, PHASE_RECORDED);
-            coronaEvent.put(EVENT_TYPE_KEY, TYPE_DEEPLINK);
-            dispatchLuaEvent(coronaEvent);
-          }
-        });
-      }
+          // send Corona Lua event
+          dispatchRecordedEvent(TYPE_DEEPLINK);
+        }
+      }, COMMAND_SIZE + (2 * URL.length()));
 
       return 0;
     }
@@ -931,7 +1955,8 @@ public class LuaLoader implements JavaFunction, CoronaRuntimeListener
      */
     @Override
     public int invoke( LuaState luaState ) {
-      Log.i(CORONA_TAG, "logStandardEvent() is deprecated, use logEvent() instead");
+      stats.countCall(PluginStats.CALL_LOG_STANDARD_EVENT);
+      logger.log(PluginLogger.LEVEL_WARNING, null, "logStandardEvent() is deprecated, use logEvent() instead");
       LogEvent event = new LogEvent();
       return event.invoke(luaState);
     }
@@ -943,6 +1968,8 @@ public class LuaLoader implements JavaFunction, CoronaRuntimeListener
   // [Lua] logCustomEvent(event [, details, receipt, receiptDataSignature])
   // --------------------------------------------------------------------------
   private class LogCustomEvent implements NamedJavaFunction {
+    private final CallContext call = new CallContext(PluginStats.CALL_LOG_CUSTOM_EVENT, "kochava.logCustomEvent(event [, details, receipt, receiptDataSignature])");
+
     /**
      * Gets the name of the Lua function as it would appear in the Lua script.
      * @return Returns the name of the custom Lua function.
@@ -962,23 +1989,20 @@ public class LuaLoader implements JavaFunction, CoronaRuntimeListener
      */
     @Override
     public int invoke( LuaState luaState ) {
-      Log.i(CORONA_TAG, "logCustomEvent() is deprecated, use logEvent() instead");
+      logger.log(PluginLogger.LEVEL_WARNING, null, "logCustomEvent() is deprecated, use logEvent() instead");
 
       final String eventName;
       final String eventDetails;
       final String receipt;
       final String receiptDataSignature;
 
-      functionSignature = "kochava.logCustomEvent(event [, details, receipt, receiptDataSignature])";
-
-      if (!isSDKInitialized()) {
-        return 0;
-      }
+      stats.countCall(call.function);
+      final long callTime = System.nanoTime();
 
       // check number or args
       int nargs = luaState.getTop();
       if ((nargs < 1) || (nargs > 4)) {
-        logMsg(ERROR_MSG, "Expected 1-4 arguments, got " + nargs);
+        logValidationError(call, PluginStats.FAILURE_ARGUMENT_COUNT, "Expected 1-4 arguments, got ", nargs);
         return 0;
       }
 
@@ -987,7 +2011,7 @@ public class LuaLoader implements JavaFunction, CoronaRuntimeListener
         eventName = luaState.toString(1);
       }
       else {
-        logMsg(ERROR_MSG, "eventName (string) expected, got " + luaState.typeName(1));
+        logValidationError(call, PluginStats.FAILURE_ARGUMENT_TYPE, "eventName (string) expected, got ", luaState.typeName(1));
         return 0;
       }
 
@@ -997,7 +2021,7 @@ public class LuaLoader implements JavaFunction, CoronaRuntimeListener
           eventDetails = luaState.toString(2);
         }
         else {
-          logMsg(ERROR_MSG, "eventDetails (string) expected, got " + luaState.typeName(2));
+          logValidationError(call, PluginStats.FAILURE_ARGUMENT_TYPE, "eventDetails (string) expected, got ", luaState.typeName(2));
           return 0;
         }
       }
@@ -1011,7 +2035,7 @@ public class LuaLoader implements JavaFunction, CoronaRuntimeListener
           receipt = luaState.toString(3);
         }
         else {
-          logMsg(ERROR_MSG, "receipt (string) expected, got " + luaState.typeName(3));
+          logValidationError(call, PluginStats.FAILURE_ARGUMENT_TYPE, "receipt (string) expected, got ", luaState.typeName(3));
           return 0;
         }
       }
@@ -1025,7 +2049,7 @@ public class LuaLoader implements JavaFunction, CoronaRuntimeListener
           receiptDataSignature = luaState.toString(4);
         }
         else {
-          logMsg(ERROR_MSG, "receiptDataSignature (string) expected, got " + luaState.typeName(4));
+          logValidationError(call, PluginStats.FAILURE_ARGUMENT_TYPE, "receiptDataSignature (string) expected, got ", luaState.typeName(4));
           return 0;
         }
       }
@@ -1035,58 +2059,289 @@ public class LuaLoader implements JavaFunction, CoronaRuntimeListener
 
       // validate event name. Make sure event names do not begin with '_' (reserved for Kochava system)
       if (eventName.startsWith("_")) {
-        logMsg(ERROR_MSG, "eventName must not start with '_' (reserved for Kochava system)");
+        logValidationError(call, PluginStats.FAILURE_RESERVED_EVENT_NAME, "eventName must not start with '_' (reserved for Kochava system)");
         return 0;
       }
 
       // validate receipt
       if (receipt != null) {
         if (receiptDataSignature == null) {
-          logMsg(ERROR_MSG, "receiptDataSignature must also be specified when providing receipt data");
+          logValidationError(call, PluginStats.FAILURE_MISSING_RECEIPT_SIGNATURE, "receiptDataSignature must also be specified when providing receipt data");
           return 0;
         }
       }
 
-      final CoronaActivity coronaActivity = CoronaEnvironment.getCoronaActivity();
+      int approximateSize = COMMAND_SIZE + (2 * (eventName.length() + eventDetails.length()));
+      if (receipt != null) {
+        approximateSize += 2 * (receipt.length() + receiptDataSignature.length());
+      }
 
-      if (coronaActivity != null) {
-        coronaActivity.runOnUiThread(new Runnable() {
+      postTrackerCommand(new Runnable() {
+        @Override
+        public void run() {
+          // send tracking event to Kochava
+          if (receipt != null) {
+            // drop purchases already sent
+            long purchaseKey = (config.purchaseFilter != null) ? PurchaseFilter.keyOf(null, null, receipt) : 0;
+            if (isDuplicatePurchase(purchaseKey, eventName)) {
+              return;
+            }
+
+            Event.buildWithEventName(eventName)
+                    .setCustomStringValue("purchaseDetails", eventDetails)
+                    .setGooglePlayReceipt(receipt, receiptDataSignature)
+                    .send();
+            recordPurchase(purchaseKey);
+          }
+          else {
+            Event.buildWithEventName(eventName)
+                    .setCustomStringValue("purchaseDetails", eventDetails)
+                    .send();
+          }
+          stats.countSent(PluginStats.SENT_CUSTOM);
+          stats.recordCallToSend(callTime);
+
+          // send Corona Lua event
+          dispatchRecordedEvent(TYPE_CUSTOM);
+        }
+      }, approximateSize);
+
+      return 0;
+    }
+  }
+
+  private class LogEvent implements NamedJavaFunction {
+    private final CallContext call = new CallContext(PluginStats.CALL_LOG_EVENT, "kochava.logEvent(eventType, options)");
+
+    /**
+     * Gets the name of the Lua function as it would appear in the Lua script.
+     * @return Returns the name of the custom Lua function.
+     */
+    @Override
+    public String getName() {
+      return "logEvent";
+    }
+
+    /**
+     * This method is called when the Lua function is called.
+     * <p>
+     * Warning! This method is not called on the main UI thread.
+     * @param luaState Reference to the Lua state.
+     *                 Needed to retrieve the Lua function's parameters and to return values back to Lua.
+     * @return Returns the number of values to be returned by the Lua function.
+     */
+    @Override
+    public int invoke( LuaState luaState ) {
+      stats.countCall(call.function);
+
+      // check number or args
+      int nargs = luaState.getTop();
+      if ((nargs < 1) || (nargs > 2)){
+        logValidationError(call, PluginStats.FAILURE_ARGUMENT_COUNT, "Expected 1 or 2 arguments, got ", nargs);
+        return 0;
+      }
+
+      // backwards compatibility
+      if ((luaState.type(1) == LuaType.STRING) && (luaState.type(2) == LuaType.STRING)) {
+        LogCustomEvent event = new LogCustomEvent();
+        return event.invoke(luaState);
+      }
+
+      // sample and rate limit before decoding the options
+      EventLimiter limiter = findEventLimiter(luaState, 1);
+      if ((limiter != null) && (! admitEvent(limiter))) {
+        return 0;
+      }
+
+      final DecodedEvent decodedEvent = new DecodedEvent();
+      decodedEvent.limiter = limiter;
+      String error = decodeEvent(luaState, 1, 2, decodedEvent);
+      if (error != null) {
+        logValidationError(call, decodedEvent.errorReason, error);
+        return 0;
+      }
+
+      sendEvent(decodedEvent);
+
+      return 0;
+    }
+  }
+
+  // [Lua] logEvents(events)
+  private class LogEvents implements NamedJavaFunction {
+    private final CallContext call = new CallContext(PluginStats.CALL_LOG_EVENTS, "kochava.logEvents(events)");
+
+    /**
+     * Gets the name of the Lua function as it would appear in the Lua script.
+     * @return Returns the name of the custom Lua function.
+     */
+    @Override
+    public String getName() {
+      return "logEvents";
+    }
+
+    /**
+     * This method is called when the Lua function is called.
+     * <p>
+     * Warning! This method is not called on the main UI thread.
+     * @param luaState Reference to the Lua state.
+     *                 Needed to retrieve the Lua function's parameters and to return values back to Lua.
+     * @return Returns the number of values to be returned by the Lua function.
+     */
+    @Override
+    public int invoke( LuaState luaState ) {
+      stats.countCall(call.function);
+
+      // check number or args
+      int nargs = luaState.getTop();
+      if (nargs != 1) {
+        logValidationError(call, PluginStats.FAILURE_ARGUMENT_COUNT, "Expected 1 argument, got ", nargs);
+        return 0;
+      }
+
+      // check for events array (required)
+      if (luaState.type(1) != LuaType.TABLE) {
+        logValidationError(call, PluginStats.FAILURE_ARGUMENT_TYPE, "events table expected, got ", luaState.typeName(1));
+        return 0;
+      }
+
+      final List<DecodedEvent> decodedEvents = new ArrayList<>();
+      List<Integer> errorIndexes = new ArrayList<>();
+      List<String> errorMessages = new ArrayList<>();
+      int approximateSize = 0;
+
+      // decode all entries, collecting errors instead of aborting on the first bad entry
+      int numEvents = luaState.length(1);
+      for (int i = 1; i <= numEvents; i++) {
+        int top = luaState.getTop();
+        String error;
+        int errorReason = PluginStats.FAILURE_ARGUMENT_TYPE;
+
+        luaState.rawGet(1, i);
+        if (luaState.type(-1) == LuaType.TABLE) {
+          // the event type is named as for logEvent(), "type" is accepted too
+          luaState.getField(top + 1, "eventType");
+          if (luaState.isNoneOrNil(top + 2)) {
+            luaState.pop(1);
+            luaState.getField(top + 1, "type");
+          }
+
+          // sample and rate limit before decoding the options
+          EventLimiter limiter = findEventLimiter(luaState, top + 2);
+          if ((limiter != null) && (! admitEvent(limiter))) {
+            luaState.setTop(top);
+            continue;
+          }
+
+          luaState.getField(top + 1, "options");
+
+          DecodedEvent decodedEvent = new DecodedEvent();
+          decodedEvent.limiter = limiter;
+          error = decodeEvent(luaState, top + 2, top + 3, decodedEvent);
+          if (error == null) {
+            decodedEvents.add(decodedEvent);
+            approximateSize += decodedEvent.approximateSize;
+          }
+          errorReason = decodedEvent.errorReason;
+        }
+        else {
+          error = "event table expected, got " + luaState.typeName(-1);
+        }
+
+        luaState.setTop(top);
+
+        if (error != null) {
+          logValidationError(call, errorReason, "events[", i, "] ", error);
+          errorIndexes.add(i);
+          errorMessages.add(error);
+        }
+      }
+
+      if (! decodedEvents.isEmpty()) {
+        postTrackerCommand(new Runnable() {
           @Override
           public void run() {
-            // send tracking event to Kochava
-            if (receipt != null) {
-              Event.buildWithEventName(eventName)
-                      .setCustomStringValue("purchaseDetails", eventDetails)
-                      .setGooglePlayReceipt(receipt, receiptDataSignature)
-                      .send();
-            }
-            else {
-              Event.buildWithEventName(eventName)
-                      .setCustomStringValue("purchaseDetails", eventDetails)
-                      .send();
+            // send all events to Kochava, dropping purchases already sent, including repeats within this batch
+            int sentCount = 0;
+            int customCount = 0;
+            long journalSequence = 0;
+            for (DecodedEvent decodedEvent: decodedEvents) {
+              journalSequence = Math.max(journalSequence, decodedEvent.journalSequence);
+              long purchaseKey = purchaseKeyOf(decodedEvent);
+              if (isDuplicatePurchase(purchaseKey, decodedEvent.eventName)) {
+                continue;
+              }
+
+              decodedEvent.build().send();
+              recordPurchase(purchaseKey);
+              stats.recordCallToSend(decodedEvent.callTime);
+              sentCount++;
+              if (decodedEvent.isCustomEvent) {
+                customCount++;
+              }
             }
+            checkpointJournal(journalSequence);
+            stats.countSent(PluginStats.SENT_CUSTOM, customCount);
+            stats.countSent(PluginStats.SENT_STANDARD, sentCount - customCount);
 
-            // send Corona Lua event
-            Map<String, Object> coronaEvent = new HashMap<>();
-            coronaEvent.put(EVENT_PHASE_KEY, PHASE_RECORDED);
-            coronaEvent.put(EVENT_TYPE_KEY, TYPE_CUSTOM);
-            dispatchLuaEvent(coronaEvent);
+            String recordedEvents = config.recordedEvents;
+            if (RECORDED_EVENTS_EACH.equals(recordedEvents)) {
+              // send a single Corona Lua event for the whole batch
+              if (sentCount > 0) {
+                dispatchLuaEvent(PHASE_RECORDED, TYPE_BATCH, sentCount);
+              }
+            }
+            else if (RECORDED_EVENTS_FRAME.equals(recordedEvents)) {
+              countRecordedEvents(TYPE_CUSTOM, customCount);
+              countRecordedEvents(TYPE_STANDARD, sentCount - customCount);
+            }
           }
-        });
+        }, approximateSize);
       }
 
-      return 0;
+      // return number of accepted events and a table of errors keyed by entry index
+      luaState.pushInteger(decodedEvents.size());
+      luaState.newTable(0, errorIndexes.size());
+      for (int i = 0; i < errorIndexes.size(); i++) {
+        luaState.pushString(errorMessages.get(i));
+        luaState.rawSet(-2, errorIndexes.get(i));
+      }
+
+      return 2;
+    }
+  }
+
+  // returns true if the value at the given stack index is a number without a fractional part
+  private static boolean isInteger(LuaState luaState, int index) {
+    if (luaState.type(index) != LuaType.NUMBER) {
+      return false;
     }
+
+    double number = luaState.toNumber(index);
+    return number == Math.rint(number);
   }
 
-  private class LogEvent implements NamedJavaFunction {
+  // the number at the given stack index, or the name of its type if it is not a number, for error messages
+  private static Object typeOrNumber(LuaState luaState, int index) {
+    return (luaState.type(index) == LuaType.NUMBER) ? (Object)luaState.toNumber(index) : luaState.typeName(index);
+  }
+
+  // prepared event of a handle, or null if the handle was never returned by prepareEvent() or was released
+  private static PreparedEvent getPreparedEvent(int handle) {
+    return ((handle >= 1) && (handle <= preparedEvents.size())) ? preparedEvents.get(handle - 1) : null;
+  }
+
+  // [Lua] prepareEvent(eventType, baseOptions)
+  private class PrepareEvent implements NamedJavaFunction {
+    private final CallContext call = new CallContext(PluginStats.CALL_PREPARE_EVENT, "kochava.prepareEvent(eventType, baseOptions)");
+
     /**
      * Gets the name of the Lua function as it would appear in the Lua script.
      * @return Returns the name of the custom Lua function.
      */
     @Override
     public String getName() {
-      return "logEvent";
+      return "prepareEvent";
     }
 
     /**
@@ -1099,387 +2354,274 @@ public class LuaLoader implements JavaFunction, CoronaRuntimeListener
      */
     @Override
     public int invoke( LuaState luaState ) {
-      functionSignature = "kochava.logEvent(eventType, options)";
-
-      if (!isSDKInitialized()) {
-        return 0;
-      }
+      stats.countCall(call.function);
 
       // check number or args
       int nargs = luaState.getTop();
       if ((nargs < 1) || (nargs > 2)){
-        logMsg(ERROR_MSG, "Expected 1 or 2 arguments, got " + nargs);
+        logValidationError(call, PluginStats.FAILURE_ARGUMENT_COUNT, "Expected 1 or 2 arguments, got ", nargs);
         return 0;
       }
 
-      final String eventParamType;
-      final Map<String, Object> standardParams = new HashMap<>();
-      String receiptData = null;
-      String dataSignature = null;
-      boolean isCustomEvent = false;
-
       // get event param type
+      String eventParamType;
       if (luaState.type(1) == LuaType.STRING) {
         eventParamType = luaState.toString(1);
       }
       else {
-        logMsg(ERROR_MSG, "eventType (string) expected, got " + luaState.typeName(1));
+        logValidationError(call, PluginStats.FAILURE_ARGUMENT_TYPE, "eventType (string) expected, got ", luaState.typeName(1));
         return 0;
       }
 
-      // get event param properties
-      if (! luaState.isNoneOrNil(2)) {
-        if (luaState.type(2) == LuaType.STRING) {
-          // backwards compatibility
-          LogCustomEvent event = new LogCustomEvent();
-          return event.invoke(luaState);
-        }
-        else if (luaState.type(2) == LuaType.TABLE) {
-          // traverse and validate all the properties
-          for (luaState.pushNil(); luaState.next(2); luaState.pop(1)) {
-            String key = luaState.toString(-2);
-
-            if (validStandardParamProperties.get(key) != null) {
-              // check variable type
-              if (validStandardParamProperties.get(key).equals("String")) {
-                if (luaState.type(-1) == LuaType.STRING) {
-                  standardParams.put(key, luaState.toString(-1));
-                }
-                else {
-                  logMsg(ERROR_MSG, "options." + key + " (string) expected, got "+ luaState.typeName(-1));
-                  return 0;
-                }
-              }
-              else if (validStandardParamProperties.get(key).equals("Boolean")) {
-                if (luaState.type(-1) == LuaType.BOOLEAN) {
-                  standardParams.put(key, luaState.toBoolean(-1));
-                }
-                else {
-                  logMsg(ERROR_MSG, "options." + key + " (boolean) expected, got "+ luaState.typeName(-1));
-                  return 0;
-                }
-              }
-              else if (validStandardParamProperties.get(key).equals("Interval")) {
-                if (luaState.type(-1) == LuaType.NUMBER) {
-                  standardParams.put(key, luaState.toNumber(-1));
-                }
-                else {
-                  logMsg(ERROR_MSG, "options." + key + " (number) expected, got "+ luaState.typeName(-1));
-                  return 0;
-                }
-              }
-              else if (validStandardParamProperties.get(key).equals("Double")) {
-                if (luaState.type(-1) == LuaType.NUMBER) {
-                  standardParams.put(key, luaState.toNumber(-1));
-                }
-                else {
-                  logMsg(ERROR_MSG, "options." + key + " (number) expected, got "+ luaState.typeName(-1));
-                  return 0;
-                }
-              }
-              else if (validStandardParamProperties.get(key).equals("Date")) {
-                if (luaState.type(-1) == LuaType.STRING) {
-                  standardParams.put(key, luaState.toString(-1));
-                }
-                else {
-                  logMsg(ERROR_MSG, "options." + key + " (string) expected, got "+ luaState.typeName(-1));
-                  return 0;
-                }
-              }
-            }
-            else { // custom properties
-              isCustomEvent = true;
+      EventType eventType = StandardEventSchema.eventType(eventParamType);
 
-              if (luaState.type(-1) == LuaType.STRING) {
-                standardParams.put(key, luaState.toString(-1));
-              }
-              else if (luaState.type(-1) == LuaType.BOOLEAN) {
-                standardParams.put(key, luaState.toBoolean(-1));
-              }
-              else if (luaState.type(-1) == LuaType.NUMBER) {
-                standardParams.put(key, luaState.toNumber(-1));
-              }
-              else {
-                logMsg(ERROR_MSG, "options." + key + " unhandled type ("+ luaState.typeName(-1) + ")");
-                return 0;
-              }
-            }
-          }
-        }
-        else {
-          logMsg(ERROR_MSG, "options table expected, got " + luaState.typeName(2));
-          return 0;
-        }
+      // decode and validate the base options once
+      PreparedEvent.Recorder recorder = new PreparedEvent.Recorder();
+      DecodedProperties decodedProperties = new DecodedProperties();
+      String error = decodeProperties(luaState, 2, recorder, decodedProperties);
+      if (error != null) {
+        logValidationError(call, decodedProperties.errorReason, error);
+        return 0;
       }
 
-      // configure Kochava params
-
-      EventApi eventParameters = null;
+      boolean isCustomEvent = (eventType == null) || decodedProperties.hasCustomProperties;
 
-      if (eventParamType.equals(STANDARD_TYPE_ACHIEVEMENT)) {
-        eventParameters = Event.buildWithEventType(EventType.ACHIEVEMENT);
+      // standard events must have properties
+      if ((! isCustomEvent) && (decodedProperties.count == 0)) {
+        logValidationError(call, PluginStats.FAILURE_MISSING_PROPERTIES, "Standard events must have properties set");
+        return 0;
       }
-      else if (eventParamType.equals(STANDARD_TYPE_ADVIEW)) {
-        eventParameters = Event.buildWithEventType(EventType.AD_VIEW);
+
+      if (decodedProperties.dateError != null) {
+        logValidationError(call, PluginStats.FAILURE_INVALID_DATE, decodedProperties.dateError);
+        return 0;
       }
-      else if (eventParamType.equals(STANDARD_TYPE_ADDTOCART)) {
-        eventParameters = Event.buildWithEventType(EventType.ADD_TO_CART);
+
+      // receipt data and signature may be completed by the options passed to logPreparedEvent()
+      PreparedEvent preparedEvent = recorder.build(eventParamType, eventType, isCustomEvent,
+        decodedProperties.receiptData, decodedProperties.dataSignature);
+
+      // handles are 1-based indexes into the prepared events list, released handles are reused first
+      int handle;
+      if (releasedHandles.isEmpty()) {
+        preparedEvents.add(preparedEvent);
+        handle = preparedEvents.size();
       }
-      else if (eventParamType.equals(STANDARD_TYPE_ADDTOWISHLIST)) {
-        eventParameters = Event.buildWithEventType(EventType.ADD_TO_WISH_LIST);
+      else {
+        handle = releasedHandles.remove(releasedHandles.size() - 1);
+        preparedEvents.set(handle - 1, preparedEvent);
       }
-      else if (eventParamType.equals(STANDARD_TYPE_CHECKOUTSTART)) {
-        eventParameters = Event.buildWithEventType(EventType.CHECKOUT_START);
+      luaState.pushInteger(handle);
+
+      return 1;
+    }
+  }
+
+  // [Lua] logPreparedEvent(handle [, options])
+  private class LogPreparedEvent implements NamedJavaFunction {
+    private final CallContext call = new CallContext(PluginStats.CALL_LOG_PREPARED_EVENT, "kochava.logPreparedEvent(handle, options)");
+
+    /**
+     * Gets the name of the Lua function as it would appear in the Lua script.
+     * @return Returns the name of the custom Lua function.
+     */
+    @Override
+    public String getName() {
+      return "logPreparedEvent";
+    }
+
+    /**
+     * This method is called when the Lua function is called.
+     * <p>
+     * Warning! This method is not called on the main UI thread.
+     * @param luaState Reference to the Lua state.
+     *                 Needed to retrieve the Lua function's parameters and to return values back to Lua.
+     * @return Returns the number of values to be returned by the Lua function.
+     */
+    @Override
+    public int invoke( LuaState luaState ) {
+      stats.countCall(call.function);
+
+      // check number or args
+      int nargs = luaState.getTop();
+      if ((nargs < 1) || (nargs > 2)){
+        logValidationError(call, PluginStats.FAILURE_ARGUMENT_COUNT, "Expected 1 or 2 arguments, got ", nargs);
+        return 0;
       }
-      else if (eventParamType.equals(STANDARD_TYPE_LEVELCOMPLETE)) {
-        eventParameters = Event.buildWithEventType(EventType.LEVEL_COMPLETE);
+
+      // get prepared event
+      // a fractional handle would silently select another prepared event
+      if (! isInteger(luaState, 1)) {
+        logValidationError(call, PluginStats.FAILURE_ARGUMENT_TYPE, "handle (integer) expected, got ", typeOrNumber(luaState, 1));
+        return 0;
       }
-      else if (eventParamType.equals(STANDARD_TYPE_PURCHASE)) {
-        eventParameters = Event.buildWithEventType(EventType.PURCHASE);
+
+      int handle = (int)luaState.toNumber(1);
+      PreparedEvent preparedEvent = getPreparedEvent(handle);
+      if (preparedEvent == null) {
+        logValidationError(call, PluginStats.FAILURE_UNKNOWN_HANDLE, "Unknown prepared event handle ", handle);
+        return 0;
       }
-      else if (eventParamType.equals(STANDARD_TYPE_PUSH_OPENED)) {
-        eventParameters = Event.buildWithEventType(EventType.PUSH_OPENED);
+
+      // sample and rate limit before decoding the options
+      EventLimiter limiter = config.eventLimiters.get(preparedEvent.eventName);
+      if ((limiter != null) && (! admitEvent(limiter))) {
+        return 0;
       }
-      else if (eventParamType.equals(STANDARD_TYPE_PUSH_RECEIVED)) {
-        eventParameters = Event.buildWithEventType(EventType.PUSH_RECEIVED);
+
+      // start from the prepared properties and decode only the per-call options on top
+      final DecodedEvent decodedEvent = new DecodedEvent();
+      decodedEvent.eventApi = preparedEvent.newEventApi();
+      decodedEvent.eventName = preparedEvent.eventName;
+      decodedEvent.isPurchase = (preparedEvent.eventType == EventType.PURCHASE);
+      decodedEvent.orderId = preparedEvent.getString(StandardEventSchema.PROPERTY_ORDER_ID);
+      decodedEvent.receiptId = preparedEvent.getString(StandardEventSchema.PROPERTY_RECEIPT_ID);
+      if (eventJournal != null) {
+        decodedEvent.recorder = new PreparedEvent.Recorder(preparedEvent);
       }
-      else if (eventParamType.equals(STANDARD_TYPE_RATING)) {
-        eventParameters = Event.buildWithEventType(EventType.RATING);
+
+      DecodedProperties decodedProperties = new DecodedProperties();
+      String error = decodeProperties(luaState, 2, decodedEvent, decodedProperties);
+      if (error == null) {
+        error = decodedProperties.dateError;
+        decodedProperties.errorReason = PluginStats.FAILURE_INVALID_DATE;
       }
-      else if (eventParamType.equals(STANDARD_TYPE_REGISTRATIONCOMPLETE)) {
-        eventParameters = Event.buildWithEventType(EventType.REGISTRATION_COMPLETE);
+      if (error != null) {
+        logValidationError(call, decodedProperties.errorReason, error);
+        return 0;
       }
-      else if (eventParamType.equals(STANDARD_TYPE_SEARCH)) {
-        eventParameters = Event.buildWithEventType(EventType.SEARCH);
+
+      // validation
+      String receiptData = (decodedProperties.receiptData != null) ? decodedProperties.receiptData : preparedEvent.receiptData;
+      String dataSignature = (decodedProperties.dataSignature != null) ? decodedProperties.dataSignature : preparedEvent.dataSignature;
+
+      if (receiptData != null) {
+        if (dataSignature == null) {
+          logValidationError(call, PluginStats.FAILURE_MISSING_RECEIPT_SIGNATURE, "receiptDataSignature must also be specified when providing receipt data");
+          return 0;
+        }
+
+        decodedEvent.setReceipt(receiptData, dataSignature);
       }
-      else if (eventParamType.equals(STANDARD_TYPE_TUTORIALCOMPLETE)) {
-        eventParameters = Event.buildWithEventType(EventType.TUTORIAL_COMPLETE);
+
+      decodedEvent.isCustomEvent = preparedEvent.isCustomEvent || decodedProperties.hasCustomProperties;
+      decodedEvent.approximateSize += decodedProperties.payloadSize;
+      if (limiter != null) {
+        limiter.addSkippedCounts(decodedEvent);
       }
-      else if (eventParamType.equals(STANDARD_TYPE_VIEW)) {
-        eventParameters = Event.buildWithEventType(EventType.VIEW);
+      journalEvent(decodedEvent, preparedEvent.eventName, preparedEvent.eventType, receiptData, dataSignature);
+
+      sendEvent(decodedEvent);
+
+      return 0;
+    }
+  }
+
+  // [Lua] releasePreparedEvent(handle)
+  private class ReleasePreparedEvent implements NamedJavaFunction {
+    private final CallContext call = new CallContext(PluginStats.CALL_RELEASE_PREPARED_EVENT, "kochava.releasePreparedEvent(handle)");
+
+    @Override
+    public String getName() {
+      return "releasePreparedEvent";
+    }
+
+    @Override
+    public int invoke( LuaState luaState ) {
+      stats.countCall(call.function);
+
+      // check number or args
+      int nargs = luaState.getTop();
+      if (nargs != 1) {
+        logValidationError(call, PluginStats.FAILURE_ARGUMENT_COUNT, "Expected 1 argument, got ", nargs);
+        return 0;
       }
-      else { // custom type
-        isCustomEvent = true;
-        eventParameters = Event.buildWithEventName(eventParamType);
+
+      // a fractional handle would silently select another prepared event
+      if (! isInteger(luaState, 1)) {
+        logValidationError(call, PluginStats.FAILURE_ARGUMENT_TYPE, "handle (integer) expected, got ", typeOrNumber(luaState, 1));
+        return 0;
       }
 
-      // standard events must have properties
-      if ((! isCustomEvent) && (standardParams.size() == 0)) {
-        logMsg(ERROR_MSG, "Standard events must have properties set");
+      int handle = (int)luaState.toNumber(1);
+      if (getPreparedEvent(handle) == null) {
+        logValidationError(call, PluginStats.FAILURE_UNKNOWN_HANDLE, "Unknown prepared event handle ", handle);
         return 0;
       }
 
-      for (String key: standardParams.keySet()) {
-        if (validStandardParamProperties.get(key) != null) {
-          if (validStandardParamProperties.get(key).equals("Date")) {
-            // validate date
-            String dateCheck = (String)standardParams.get(key);
+      // events already logged keep their own copy of the properties, so the slot can be reused at once
+      preparedEvents.set(handle - 1, null);
+      releasedHandles.add(handle);
 
-            DateFormat format = new SimpleDateFormat("yyyy-MM-dd", Locale.ENGLISH);
-            format.setLenient(false);
-            try {
-              format.parse(dateCheck);
-            }
-            catch (ParseException e) {
-              logMsg(ERROR_MSG, "options." + key + " Invalid format '" + dateCheck + "'. Valid format: yyyy-mm-dd");
-              return 0;
-            }
+      return 0;
+    }
+  }
 
-            if (key.equals(STANDARD_PROPERTY_DATE)) {
-              eventParameters = eventParameters.setDate(dateCheck);
-            }
-            else if (key.equals(STANDARD_PROPERTY_ENDDATE)) {
-              eventParameters = eventParameters.setEndDate(dateCheck);
-            }
-            else if (key.equals(STANDARD_PROPERTY_STARTDATE)) {
-              eventParameters = eventParameters.setStartDate(dateCheck);
-            }
-          }
-          else {
-            if (key.equals(STANDARD_PROPERTY_ACTION)) {
-              eventParameters = eventParameters.setAction((String)standardParams.get(key));
-            }
-            else if (key.equals(STANDARD_PROPERTY_ADCAMPAIGNID)) {
-              eventParameters = eventParameters.setAdCampaignId((String)standardParams.get(key));
-            }
-            else if (key.equals(STANDARD_PROPERTY_ADCAMPAIGNNAME)) {
-              eventParameters = eventParameters.setAdCampaignName((String)standardParams.get(key));
-            }
-            else if (key.equals(STANDARD_PROPERTY_ADDEVICETYPE)) {
-              eventParameters = eventParameters.setAdDeviceType((String)standardParams.get(key));
-            }
-            else if (key.equals(STANDARD_PROPERTY_ADGROUPID)) {
-              eventParameters = eventParameters.setAdGroupId((String)standardParams.get(key));
-            }
-            else if (key.equals(STANDARD_PROPERTY_ADGROUPNAME)) {
-              eventParameters = eventParameters.setAdGroupName((String)standardParams.get(key));
-            }
-            else if (key.equals(STANDARD_PROPERTY_ADMEDIATIONNAME)) {
-              eventParameters = eventParameters.setAdMediationName((String)standardParams.get(key));
-            }
-            else if (key.equals(STANDARD_PROPERTY_ADNETWORKNAME)) {
-              eventParameters = eventParameters.setAdNetworkName((String)standardParams.get(key));
-            }
-            else if (key.equals(STANDARD_PROPERTY_ADPLACEMENT)) {
-              eventParameters = eventParameters.setAdPlacement((String)standardParams.get(key));
-            }
-            else if (key.equals(STANDARD_PROPERTY_ADSIZE)) {
-              eventParameters = eventParameters.setAdSize((String)standardParams.get(key));
-            }
-            else if (key.equals(STANDARD_PROPERTY_ADTYPE)) {
-              eventParameters = eventParameters.setAdType((String)standardParams.get(key));
-            }
-            else if (key.equals(STANDARD_PROPERTY_BACKGROUND)) {
-              eventParameters = eventParameters.setBackground((boolean)standardParams.get(key));
-            }
-            else if (key.equals(STANDARD_PROPERTY_CHECKOUTASGUEST)) {
-              eventParameters = eventParameters.setCheckoutAsGuest((boolean)standardParams.get(key) ? "true" : "false");
-            }
-            else if (key.equals(STANDARD_PROPERTY_COMPLETED)) {
-              eventParameters = eventParameters.setCompleted((boolean)standardParams.get(key));
-            }
-            else if (key.equals(STANDARD_PROPERTY_CONTENTID)) {
-              eventParameters = eventParameters.setContentId((String)standardParams.get(key));
-            }
-            else if (key.equals(STANDARD_PROPERTY_CONTENTTYPE)) {
-              eventParameters = eventParameters.setContentType((String)standardParams.get(key));
-            }
-            else if (key.equals(STANDARD_PROPERTY_CURRENCY)) {
-              eventParameters = eventParameters.setCurrency((String)standardParams.get(key));
-            }
-            else if (key.equals(STANDARD_PROPERTY_DESCRIPTION)) {
-              eventParameters = eventParameters.setDescription((String)standardParams.get(key));
-            }
-            else if (key.equals(STANDARD_PROPERTY_DESTINATION)) {
-              eventParameters = eventParameters.setDestination((String)standardParams.get(key));
-            }
-            else if (key.equals(STANDARD_PROPERTY_DURATIONTIMEINTERVAL)) {
-              eventParameters = eventParameters.setDuration((double)standardParams.get(key));
-            }
-            else if (key.equals(STANDARD_PROPERTY_ITEMADDEDFROM)) {
-              eventParameters = eventParameters.setItemAddedFrom((String)standardParams.get(key));
-            }
-            else if (key.equals(STANDARD_PROPERTY_LEVEL)) {
-              eventParameters = eventParameters.setLevel((String)standardParams.get(key));
-            }
-            else if (key.equals(STANDARD_PROPERTY_MAXRATING)) {
-              eventParameters = eventParameters.setMaxRatingValue((double)standardParams.get(key));
-            }
-            else if (key.equals(STANDARD_PROPERTY_NAME)) {
-              eventParameters = eventParameters.setName((String)standardParams.get(key));
-            }
-            else if (key.equals(STANDARD_PROPERTY_ORDERID)) {
-              eventParameters = eventParameters.setOrderId((String)standardParams.get(key));
-            }
-            else if (key.equals(STANDARD_PROPERTY_ORIGIN)) {
-              eventParameters = eventParameters.setOrigin((String)standardParams.get(key));
-            }
-            else if (key.equals(STANDARD_PROPERTY_PAYLOAD)) {
-              eventParameters = eventParameters.setPayload((Bundle)standardParams.get(key));
-            }
-            else if (key.equals(STANDARD_PROPERTY_PRICE)) {
-              eventParameters = eventParameters.setPrice((double)standardParams.get(key));
-            }
-            else if (key.equals(STANDARD_PROPERTY_QUANTITY)) {
-              eventParameters = eventParameters.setQuantity((double)standardParams.get(key));
-            }
-            else if (key.equals(STANDARD_PROPERTY_RATINGVALUE)) {
-              eventParameters = eventParameters.setRatingValue((double)standardParams.get(key));
-            }
-            else if (key.equals(STANDARD_PROPERTY_RECEIPTID)) {
-              eventParameters = eventParameters.setReceiptId((String)standardParams.get(key));
-            }
-            else if (key.equals(STANDARD_PROPERTY_RECEIPTDATA)) {
-              receiptData = (String)standardParams.get(key);
-            }
-            else if (key.equals(STANDARD_PROPERTY_RECEIPTDATASIGNATURE)) {
-              dataSignature = (String)standardParams.get(key);
-            }
-            else if (key.equals(STANDARD_PROPERTY_REFERRALFROM)) {
-              eventParameters = eventParameters.setReferralFrom((String)standardParams.get(key));
-            }
-            else if (key.equals(STANDARD_PROPERTY_REGISTRATIONMETHOD)) {
-              eventParameters = eventParameters.setRegistrationMethod((String)standardParams.get(key));
-            }
-            else if (key.equals(STANDARD_PROPERTY_RESULTS)) {
-              eventParameters = eventParameters.setResults((String)standardParams.get(key));
-            }
-            else if (key.equals(STANDARD_PROPERTY_SCORE)) {
-              eventParameters = eventParameters.setScore((String)standardParams.get(key));
-            }
-            else if (key.equals(STANDARD_PROPERTY_SEARCHTERM)) {
-              eventParameters = eventParameters.setSearchTerm((String)standardParams.get(key));
-            }
-            else if (key.equals(STANDARD_PROPERTY_SPATIAL_X)) {
-              eventParameters = eventParameters.setSpatialX((double)standardParams.get(key));
-            }
-            else if (key.equals(STANDARD_PROPERTY_SPATIAL_Y)) {
-              eventParameters = eventParameters.setSpatialY((double)standardParams.get(key));
-            }
-            else if (key.equals(STANDARD_PROPERTY_SPATIAL_Z)) {
-              eventParameters = eventParameters.setSpatialZ((double)standardParams.get(key));
-            }
-            else if (key.equals(STANDARD_PROPERTY_SUCCESS)) {
-              eventParameters = eventParameters.setSuccess((String)standardParams.get(key));
-            }
-            else if (key.equals(STANDARD_PROPERTY_USERID)) {
-              eventParameters = eventParameters.setUserId((String)standardParams.get(key));
-            }
-            else if (key.equals(STANDARD_PROPERTY_USERNAME)) {
-              eventParameters = eventParameters.setUserName((String)standardParams.get(key));
-            }
-            else if (key.equals(STANDARD_PROPERTY_VALIDATED)) {
-              eventParameters = eventParameters.setValidated((String)standardParams.get(key));
-            }
-          }
-        }
-        else { // custom property
-          Object value = standardParams.get(key);
+  // [Lua] increment(eventName, key [, delta])
+  private class Increment implements NamedJavaFunction {
+    private final CallContext call = new CallContext(PluginStats.CALL_INCREMENT, "kochava.increment(eventName, key [, delta])");
 
-          if (value instanceof Double) {
-            eventParameters = eventParameters.setCustomNumberValue(key, (double)standardParams.get(key));
-          }
-          else if (value instanceof String) {
-            eventParameters = eventParameters.setCustomStringValue(key, (String)standardParams.get(key));
-          }
-          else if (value instanceof Boolean) {
-            eventParameters = eventParameters.setCustomBoolValue(key, (boolean)standardParams.get(key));
-          }
-          else {
-            Log.i(ERROR_MSG, "Invalid data type for custom parameter with key '" + key + "'");
-            return 0;
-          }
-        }
+    /**
+     * Gets the name of the Lua function as it would appear in the Lua script.
+     * @return Returns the name of the custom Lua function.
+     */
+    @Override
+    public String getName() {
+      return "increment";
+    }
+
+    /**
+     * This method is called when the Lua function is called.
+     * <p>
+     * Warning! This method is not called on the main UI thread.
+     * @param luaState Reference to the Lua state.
+     *                 Needed to retrieve the Lua function's parameters and to return values back to Lua.
+     * @return Returns the number of values to be returned by the Lua function.
+     */
+    @Override
+    public int invoke( LuaState luaState ) {
+      stats.countCall(call.function);
+
+      // check number or args
+      int nargs = luaState.getTop();
+      if ((nargs < 2) || (nargs > 3)) {
+        logValidationError(call, PluginStats.FAILURE_ARGUMENT_COUNT, "Expected 2 or 3 arguments, got ", nargs);
+        return 0;
       }
 
-      // validation
-      if (receiptData != null) {
-        if (dataSignature == null) {
-          logMsg(ERROR_MSG, "receiptDataSignature must also be specified when providing receipt data");
-          return 0;
-        }
+      if (luaState.type(1) != LuaType.STRING) {
+        logValidationError(call, PluginStats.FAILURE_ARGUMENT_TYPE, "eventName (string) expected, got ", luaState.typeName(1));
+        return 0;
+      }
+      String eventName = luaState.toString(1);
 
-        eventParameters = eventParameters.setGooglePlayReceipt(receiptData, dataSignature);
+      // Make sure event names do not begin with '_' (reserved for Kochava system)
+      if (eventName.startsWith("_")) {
+        logValidationError(call, PluginStats.FAILURE_RESERVED_EVENT_NAME, "eventName must not start with '_' (reserved for Kochava system)");
+        return 0;
       }
 
-      // declare final values for inner loop
-      final CoronaActivity coronaActivity = CoronaEnvironment.getCoronaActivity();
-      final EventApi fEventParameters = eventParameters;
-      final boolean fIsCustomEvent = isCustomEvent;
+      if (luaState.type(2) != LuaType.STRING) {
+        logValidationError(call, PluginStats.FAILURE_ARGUMENT_TYPE, "key (string) expected, got ", luaState.typeName(2));
+        return 0;
+      }
+      String key = luaState.toString(2);
 
-      if (coronaActivity != null) {
-        coronaActivity.runOnUiThread(new Runnable() {
-          @Override
-          public void run() {
-            // send parameters to Kochava
-            fEventParameters.send();
-            // send Corona Lua event
-            Map<String, Object> coronaEvent = new HashMap<>();
-            coronaEvent.put(EVENT_PHASE_KEY, PHASE_RECORDED);
-            coronaEvent.put(EVENT_TYPE_KEY, fIsCustomEvent ? TYPE_CUSTOM : TYPE_STANDARD);
-            dispatchLuaEvent(coronaEvent);
-          }
-        });
+      double delta = 1;
+      if (! luaState.isNoneOrNil(3)) {
+        if (luaState.type(3) != LuaType.NUMBER) {
+          logValidationError(call, PluginStats.FAILURE_ARGUMENT_TYPE, "delta (number) expected, got ", luaState.typeName(3));
+          return 0;
+        }
+        delta = luaState.toNumber(3);
+      }
+
+      CounterAggregator.Counters fullCounters = counterAggregator.add(eventName, key, delta, config.counterFlushThreshold);
+      if (fullCounters != null) {
+        sendCounters(fullCounters);
+      }
+      else {
+        scheduleCounterFlush();
       }
 
       return 0;
@@ -1488,6 +2630,8 @@ public class LuaLoader implements JavaFunction, CoronaRuntimeListener
 
   // [Lua] setIdentityLink(table)
   private class SetIdentityLink implements NamedJavaFunction {
+    private final CallContext call = new CallContext(PluginStats.CALL_SET_IDENTITY_LINK, "kochava.setIdentityLink(table)");
+
     /**
      * Gets the name of the Lua function as it would appear in the Lua script.
      * @return Returns the name of the custom Lua function.
@@ -1507,26 +2651,49 @@ public class LuaLoader implements JavaFunction, CoronaRuntimeListener
      */
     @Override
     public int invoke( LuaState luaState ) {
-      functionSignature = "kochava.setIdentityLink(table)";
-
-      if (!isSDKInitialized()) {
-        return 0;
-      }
+      stats.countCall(call.function);
 
       // check number or args
       int nargs = luaState.getTop();
       if (nargs != 1) {
-        logMsg(ERROR_MSG, "Expected 1 argument, got " + nargs);
+        logValidationError(call, PluginStats.FAILURE_ARGUMENT_COUNT, "Expected 1 argument, got ", nargs);
         return 0;
       }
 
 
       // check for key/value table (required)
       if (luaState.type(1) == LuaType.TABLE) {
-        makeIdentityLink(CoronaLua.toHashtable(luaState, 1));
+        // walk the table into parallel arrays, counting the links first
+        int count = 0;
+        for (luaState.pushNil(); luaState.next(1); luaState.pop(1)) {
+          count++;
+        }
+
+        final String[] keys = new String[count];
+        final String[] values = new String[count];
+        int i = 0;
+        for (luaState.pushNil(); luaState.next(1); luaState.pop(1)) {
+          keys[i] = toIdentityLinkString(luaState, -2);
+          values[i] = toIdentityLinkString(luaState, -1);
+          if ((keys[i] == null) || (values[i] == null)) {
+            String typeName = luaState.typeName((keys[i] == null) ? -2 : -1);
+            luaState.pop(2);
+            logValidationError(call, PluginStats.FAILURE_ARGUMENT_TYPE, "identity link keys and values must be strings, numbers or booleans, got ", typeName);
+            return 0;
+          }
+          i++;
+        }
+
+        postTrackerCommand(new Runnable() {
+          @Override
+          public void run() {
+            // send identity links to Kochava
+            makeIdentityLink(keys, values);
+          }
+        }, IDENTITY_LINK_SIZE * count);
       }
       else {
-        logMsg(ERROR_MSG, "key/value table expected, got " + luaState.typeName(1));
+        logValidationError(call, PluginStats.FAILURE_ARGUMENT_TYPE, "key/value table expected, got ", luaState.typeName(1));
         return 0;
       }
 
@@ -1536,6 +2703,8 @@ public class LuaLoader implements JavaFunction, CoronaRuntimeListener
 
   // [Lua] setHasUserConsent(bool)
   private class SetHasUserConsent implements NamedJavaFunction {
+    private final CallContext call = new CallContext(PluginStats.CALL_SET_HAS_USER_CONSENT, "kochava.setHasUserConsent(boolean)");
+
     /**
      * Gets the name of the Lua function as it would appear in the Lua script.
      * @return Returns the name of the custom Lua function.
@@ -1555,39 +2724,33 @@ public class LuaLoader implements JavaFunction, CoronaRuntimeListener
      */
     @Override
     public int invoke( LuaState luaState ) {
-      functionSignature = "kochava.setHasUserConsent(boolean)";
+      stats.countCall(call.function);
 
-      if (!isSDKInitialized()) {
+      if (!isSDKInitialized(call)) {
         return 0;
       }
 
       // check number or args
       int nargs = luaState.getTop();
       if (nargs != 1) {
-        logMsg(ERROR_MSG, "Expected 1 argument, got " + nargs);
+        logValidationError(call, PluginStats.FAILURE_ARGUMENT_COUNT, "Expected 1 argument, got ", nargs);
         return 0;
       }
 
-      Boolean localHasUserConsent;
-
       // check for consent boolean (required)
       if (luaState.type(1) == LuaType.BOOLEAN) {
-        localHasUserConsent = luaState.toBoolean(-1);
-        final CoronaActivity coronaActivity = CoronaEnvironment.getCoronaActivity();
-        final Boolean fLocalHasUserConsent = localHasUserConsent;
-        if (coronaActivity != null) {
-          coronaActivity.runOnUiThread(new Runnable() {
-            @Override
-            public void run() {
-              // send consent to Kochava
-              Tracker.getInstance().setIntelligentConsentGranted(fLocalHasUserConsent);
-            }
-          });
-        }
+        final boolean fLocalHasUserConsent = luaState.toBoolean(-1);
+        commandQueue.post(new Runnable() {
+          @Override
+          public void run() {
+            // send consent to Kochava
+            Tracker.getInstance().setIntelligentConsentGranted(fLocalHasUserConsent);
+          }
+        });
         return 0;
       }
       else {
-        logMsg(ERROR_MSG, "Boolean expected, got " + luaState.typeName(1));
+        logValidationError(call, PluginStats.FAILURE_ARGUMENT_TYPE, "Boolean expected, got ", luaState.typeName(1));
         return 0;
       }
     }
@@ -0,0 +1,423 @@
+//
+// PayloadConverter.java
+// Kochava Plugin
+//
+// Copyright (c) 2016 CoronaLabs inc. All rights reserved.
+//
+
+// @formatter:off
+
+package plugin.kochava;
+
+import com.naef.jnlua.LuaState;
+import com.naef.jnlua.LuaType;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+import android.os.Bundle;
+import android.os.Parcelable;
+
+/**
+ * Converts the Lua table of the payload property to a Bundle in a single pass over the table.
+ * <p>
+ * Tables with string or number keys become nested bundles and sequences become typed arrays, so no intermediate
+ * Hashtable is built. Depth, key count and size are checked as the table is walked, and string lengths are checked
+ * before strings are copied out of Lua, so an oversized payload is rejected before it is allocated.
+ * A converter is created for each conversion; the limits are shared.
+ */
+final class PayloadConverter
+{
+  // default limits (init option payloadLimits)
+  static final int MAX_DEPTH = 8;
+  static final int MAX_KEYS  = 256;
+  static final int MAX_BYTES = 16 * 1024;
+
+  // approximate size of a key or array element besides its contents
+  private static final int ENTRY_SIZE = 16;
+
+  // types of values in the journal format
+  private static final byte TYPE_STRING        = 0;
+  private static final byte TYPE_NUMBER        = 1;
+  private static final byte TYPE_BOOLEAN       = 2;
+  private static final byte TYPE_BUNDLE        = 3;
+  private static final byte TYPE_STRING_ARRAY  = 4;
+  private static final byte TYPE_NUMBER_ARRAY  = 5;
+  private static final byte TYPE_BOOLEAN_ARRAY = 6;
+  private static final byte TYPE_BUNDLE_ARRAY  = 7;
+
+  /**
+   * Limits of a payload: nesting depth, total number of keys and array elements, and approximate size in bytes.
+   */
+  static final class Limits {
+    static final Limits DEFAULT = new Limits(MAX_DEPTH, MAX_KEYS, MAX_BYTES);
+
+    final int maxDepth;
+    final int maxKeys;
+    final int maxBytes;
+
+    Limits(int maxDepth, int maxKeys, int maxBytes) {
+      this.maxDepth = maxDepth;
+      this.maxKeys = maxKeys;
+      this.maxBytes = maxBytes;
+    }
+  }
+
+  private final Limits limits;
+  private int keyCount = 0;
+  private int byteCount = 0;
+
+  // error message and PluginStats failure reason when a conversion fails
+  String error;
+  int errorReason;
+
+  PayloadConverter(Limits limits) {
+    this.limits = limits;
+  }
+
+  // approximate size of the converted payload in bytes
+  int getByteCount() {
+    return byteCount;
+  }
+
+  // convert the table at the given stack index, path names it in error messages
+  // returns null and sets error if the table can't be converted or exceeds the limits
+  Bundle convert(LuaState luaState, int index, String path) {
+    if (luaState.length(index) > 0) {
+      return fail(PluginStats.FAILURE_PROPERTY_TYPE, path + " (table with keys) expected, got array");
+    }
+
+    return convertTable(luaState, index, path, 1);
+  }
+
+  private Bundle convertTable(LuaState luaState, int index, String path, int depth) {
+    if (depth > limits.maxDepth) {
+      return fail(PluginStats.FAILURE_PAYLOAD_LIMIT, path + " is nested deeper than " + limits.maxDepth + " levels");
+    }
+
+    Bundle bundle = new Bundle();
+
+    for (luaState.pushNil(); luaState.next(index); luaState.pop(1)) {
+      // number keys are formatted without converting them in place, which would break next()
+      String key;
+      if (luaState.type(-2) == LuaType.STRING) {
+        if (! reserve(1, ENTRY_SIZE + luaState.length(-2), path)) {
+          return null;
+        }
+        key = luaState.toString(-2);
+      }
+      else if (luaState.type(-2) == LuaType.NUMBER) {
+        if (! reserve(1, ENTRY_SIZE, path)) {
+          return null;
+        }
+        double number = luaState.toNumber(-2);
+        key = (number == Math.rint(number)) ? Long.toString((long)number) : Double.toString(number);
+      }
+      else {
+        return fail(PluginStats.FAILURE_PROPERTY_TYPE, path + " keys must be strings or numbers, got " + luaState.typeName(-2));
+      }
+
+      String valuePath = path + "." + key;
+      switch (luaState.type(-1)) {
+        case STRING:
+          String string = toString(luaState, -1, valuePath);
+          if (string == null) {
+            return null;
+          }
+          bundle.putString(key, string);
+          break;
+        case NUMBER:
+          if (! reserve(0, 8, valuePath)) {
+            return null;
+          }
+          bundle.putDouble(key, luaState.toNumber(-1));
+          break;
+        case BOOLEAN:
+          if (! reserve(0, 1, valuePath)) {
+            return null;
+          }
+          bundle.putBoolean(key, luaState.toBoolean(-1));
+          break;
+        case TABLE:
+          int valueIndex = luaState.getTop();
+          if (luaState.length(valueIndex) > 0) {
+            if (! putArray(luaState, valueIndex, valuePath, depth + 1, bundle, key)) {
+              return null;
+            }
+          }
+          else {
+            Bundle nested = convertTable(luaState, valueIndex, valuePath, depth + 1);
+            if (nested == null) {
+              return null;
+            }
+            bundle.putBundle(key, nested);
+          }
+          break;
+        default:
+          return fail(PluginStats.FAILURE_PROPERTY_TYPE, valuePath + " (string, number, boolean or table) expected, got " + luaState.typeName(-1));
+      }
+    }
+
+    return bundle;
+  }
+
+  // convert the sequence at the given stack index to a typed array, all elements must have the type of the first
+  private boolean putArray(LuaState luaState, int index, String path, int depth, Bundle bundle, String key) {
+    if (depth > limits.maxDepth) {
+      fail(PluginStats.FAILURE_PAYLOAD_LIMIT, path + " is nested deeper than " + limits.maxDepth + " levels");
+      return false;
+    }
+
+    int length = luaState.length(index);
+    if (! reserve(length, 0, path)) {
+      return false;
+    }
+
+    // a table with keys besides its sequence would lose them as an array
+    int entryCount = 0;
+    for (luaState.pushNil(); luaState.next(index); luaState.pop(1)) {
+      entryCount++;
+    }
+    if (entryCount != length) {
+      fail(PluginStats.FAILURE_PROPERTY_TYPE, path + " (array or table with keys) expected, got array with keys");
+      return false;
+    }
+
+    luaState.rawGet(index, 1);
+    LuaType elementType = luaState.type(-1);
+    String elementTypeName = luaState.typeName(-1);
+    luaState.pop(1);
+
+    switch (elementType) {
+      case STRING:
+        String[] strings = new String[length];
+        for (int i = 0; i < length; i++) {
+          luaState.rawGet(index, i + 1);
+          if (! checkElementType(luaState, elementType, elementTypeName, path, i)) {
+            return false;
+          }
+          strings[i] = toString(luaState, -1, path);
+          if (strings[i] == null) {
+            return false;
+          }
+          luaState.pop(1);
+        }
+        bundle.putStringArray(key, strings);
+        return true;
+      case NUMBER:
+        if (! reserve(0, 8 * length, path)) {
+          return false;
+        }
+        double[] numbers = new double[length];
+        for (int i = 0; i < length; i++) {
+          luaState.rawGet(index, i + 1);
+          if (! checkElementType(luaState, elementType, elementTypeName, path, i)) {
+            return false;
+          }
+          numbers[i] = luaState.toNumber(-1);
+          luaState.pop(1);
+        }
+        bundle.putDoubleArray(key, numbers);
+        return true;
+      case BOOLEAN:
+        if (! reserve(0, length, path)) {
+          return false;
+        }
+        boolean[] booleans = new boolean[length];
+        for (int i = 0; i < length; i++) {
+          luaState.rawGet(index, i + 1);
+          if (! checkElementType(luaState, elementType, elementTypeName, path, i)) {
+            return false;
+          }
+          booleans[i] = luaState.toBoolean(-1);
+          luaState.pop(1);
+        }
+        bundle.putBooleanArray(key, booleans);
+        return true;
+      case TABLE:
+        Bundle[] bundles = new Bundle[length];
+        for (int i = 0; i < length; i++) {
+          luaState.rawGet(index, i + 1);
+          if (! checkElementType(luaState, elementType, elementTypeName, path, i)) {
+            return false;
+          }
+          String elementPath = path + "[" + (i + 1) + "]";
+          if (luaState.length(-1) > 0) {
+            fail(PluginStats.FAILURE_PROPERTY_TYPE, elementPath + " (table with keys) expected, got array");
+            return false;
+          }
+          bundles[i] = convertTable(luaState, luaState.getTop(), elementPath, depth + 1);
+          if (bundles[i] == null) {
+            return false;
+          }
+          luaState.pop(1);
+        }
+        bundle.putParcelableArray(key, bundles);
+        return true;
+      default:
+        fail(PluginStats.FAILURE_PROPERTY_TYPE, path + "[1] (string, number, boolean or table) expected, got " + elementTypeName);
+        return false;
+    }
+  }
+
+  private boolean checkElementType(LuaState luaState, LuaType elementType, String elementTypeName, String path, int i) {
+    if (luaState.type(-1) != elementType) {
+      fail(PluginStats.FAILURE_PROPERTY_TYPE, path + "[" + (i + 1) + "] (" + elementTypeName + ") expected, got " + luaState.typeName(-1));
+      return false;
+    }
+
+    return true;
+  }
+
+  // copy a string out of Lua once its length has been checked against the limits
+  private String toString(LuaState luaState, int index, String path) {
+    if (! reserve(0, luaState.length(index), path)) {
+      return null;
+    }
+
+    return luaState.toString(index);
+  }
+
+  // account for keys and bytes, returning false and setting error if a limit is exceeded
+  private boolean reserve(int keys, int bytes, String path) {
+    keyCount += keys;
+    byteCount += bytes;
+
+    if (keyCount > limits.maxKeys) {
+      fail(PluginStats.FAILURE_PAYLOAD_LIMIT, path + " exceeds the payload limit of " + limits.maxKeys + " keys");
+      return false;
+    }
+    if (byteCount > limits.maxBytes) {
+      fail(PluginStats.FAILURE_PAYLOAD_LIMIT, path + " exceeds the payload limit of " + limits.maxBytes + " bytes");
+      return false;
+    }
+
+    return true;
+  }
+
+  private Bundle fail(int reason, String message) {
+    errorReason = reason;
+    error = message;
+    return null;
+  }
+
+  // write a converted payload in the journal format
+  static void writeBundle(DataOutput out, Bundle bundle) throws IOException {
+    out.writeInt(bundle.size());
+    for (String key: bundle.keySet()) {
+      PreparedEvent.writeString(out, key);
+
+      Object value = bundle.get(key);
+      if (value instanceof String) {
+        out.writeByte(TYPE_STRING);
+        PreparedEvent.writeString(out, (String)value);
+      }
+      else if (value instanceof Double) {
+        out.writeByte(TYPE_NUMBER);
+        out.writeDouble((Double)value);
+      }
+      else if (value instanceof Boolean) {
+        out.writeByte(TYPE_BOOLEAN);
+        out.writeBoolean((Boolean)value);
+      }
+      else if (value instanceof Bundle) {
+        out.writeByte(TYPE_BUNDLE);
+        writeBundle(out, (Bundle)value);
+      }
+      else if (value instanceof String[]) {
+        String[] strings = (String[])value;
+        out.writeByte(TYPE_STRING_ARRAY);
+        out.writeInt(strings.length);
+        for (String string: strings) {
+          PreparedEvent.writeString(out, string);
+        }
+      }
+      else if (value instanceof double[]) {
+        double[] numbers = (double[])value;
+        out.writeByte(TYPE_NUMBER_ARRAY);
+        out.writeInt(numbers.length);
+        for (double number: numbers) {
+          out.writeDouble(number);
+        }
+      }
+      else if (value instanceof boolean[]) {
+        boolean[] booleans = (boolean[])value;
+        out.writeByte(TYPE_BOOLEAN_ARRAY);
+        out.writeInt(booleans.length);
+        for (boolean b: booleans) {
+          out.writeBoolean(b);
+        }
+      }
+      else if (value instanceof Parcelable[]) {
+        Parcelable[] bundles = (Parcelable[])value;
+        out.writeByte(TYPE_BUNDLE_ARRAY);
+        out.writeInt(bundles.length);
+        for (Parcelable element: bundles) {
+          writeBundle(out, (Bundle)element);
+        }
+      }
+      else {
+        throw new IOException("Unsupported payload value " + key);
+      }
+    }
+  }
+
+  // read a payload written by writeBundle()
+  static Bundle readBundle(DataInput in) throws IOException {
+    Bundle bundle = new Bundle();
+
+    int count = in.readInt();
+    for (int i = 0; i < count; i++) {
+      String key = PreparedEvent.readString(in);
+      byte type = in.readByte();
+
+      switch (type) {
+        case TYPE_STRING:
+          bundle.putString(key, PreparedEvent.readString(in));
+          break;
+        case TYPE_NUMBER:
+          bundle.putDouble(key, in.readDouble());
+          break;
+        case TYPE_BOOLEAN:
+          bundle.putBoolean(key, in.readBoolean());
+          break;
+        case TYPE_BUNDLE:
+          bundle.putBundle(key, readBundle(in));
+          break;
+        case TYPE_STRING_ARRAY:
+          String[] strings = new String[in.readInt()];
+          for (int j = 0; j < strings.length; j++) {
+            strings[j] = PreparedEvent.readString(in);
+          }
+          bundle.putStringArray(key, strings);
+          break;
+        case TYPE_NUMBER_ARRAY:
+          double[] numbers = new double[in.readInt()];
+          for (int j = 0; j < numbers.length; j++) {
+            numbers[j] = in.readDouble();
+          }
+          bundle.putDoubleArray(key, numbers);
+          break;
+        case TYPE_BOOLEAN_ARRAY:
+          boolean[] booleans = new boolean[in.readInt()];
+          for (int j = 0; j < booleans.length; j++) {
+            booleans[j] = in.readBoolean();
+          }
+          bundle.putBooleanArray(key, booleans);
+          break;
+        case TYPE_BUNDLE_ARRAY:
+          Bundle[] bundles = new Bundle[in.readInt()];
+          for (int j = 0; j < bundles.length; j++) {
+            bundles[j] = readBundle(in);
+          }
+          bundle.putParcelableArray(key, bundles);
+          break;
+        default:
+          throw new IOException("Unknown payload value type " + type);
+      }
+    }
+
+    return bundle;
+  }
+}
@@ -0,0 +1,56 @@
+//
+// PluginConfig.java
+// Kochava Plugin
+//
+// Copyright (c) 2016 CoronaLabs inc. All rights reserved.
+//
+
+// @formatter:off
+
+package plugin.kochava;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Immutable snapshot of the plugin configuration set by kochava.init().
+ * <p>
+ * A new snapshot is built once all the options have been validated and published with a single volatile write,
+ * so the Lua, main UI and tracker threads each read one consistent configuration without locking.
+ * Readers should load the snapshot once per operation rather than once per field.
+ */
+final class PluginConfig
+{
+  // delivery mode of "recorded" events (init option recordedEvents)
+  final String recordedEvents;
+
+  // sampling and rate limits per event name (init option eventLimits)
+  final Map<String, EventLimiter> eventLimiters;
+
+  // delay and number of increments after which counters are sent (init options counterFlushInterval and counterFlushThreshold)
+  final long counterFlushIntervalMillis;
+  final int counterFlushThreshold;
+
+  // limits of the payload property (init option payloadLimits)
+  final PayloadConverter.Limits payloadLimits;
+
+  // filter of purchases already sent, or null (init option deduplicatePurchases)
+  final PurchaseFilter purchaseFilter;
+
+  // consent options
+  final boolean hasUserConsent;
+  final boolean intelligentConsentManagement;
+
+  PluginConfig(String recordedEvents, Map<String, EventLimiter> eventLimiters,
+               long counterFlushIntervalMillis, int counterFlushThreshold, PayloadConverter.Limits payloadLimits,
+               PurchaseFilter purchaseFilter, boolean hasUserConsent, boolean intelligentConsentManagement) {
+    this.recordedEvents = recordedEvents;
+    this.eventLimiters = Collections.unmodifiableMap(eventLimiters);
+    this.counterFlushIntervalMillis = counterFlushIntervalMillis;
+    this.counterFlushThreshold = counterFlushThreshold;
+    this.payloadLimits = payloadLimits;
+    this.purchaseFilter = purchaseFilter;
+    this.hasUserConsent = hasUserConsent;
+    this.intelligentConsentManagement = intelligentConsentManagement;
+  }
+}
@@ -0,0 +1,183 @@
+//
+// PluginLogger.java
+// Kochava Plugin
+//
+// Copyright (c) 2016 CoronaLabs inc. All rights reserved.
+//
+
+// @formatter:off
+
+package plugin.kochava;
+
+import com.naef.jnlua.LuaState;
+
+import android.util.Log;
+
+/**
+ * Level-gated plugin log, with the most recent records kept in memory for kochava.getLogs().
+ * <p>
+ * Messages are passed as a constant part and an optional detail, and only joined once they pass the level check,
+ * so a message below the level costs a comparison. A message repeated with the same details by the same function
+ * within a second of the last time it was logged is counted instead, and the count is appended to it the next time
+ * it is logged.
+ */
+final class PluginLogger
+{
+  static final int LEVEL_DEBUG   = 0;
+  static final int LEVEL_INFO    = 1;
+  static final int LEVEL_WARNING = 2;
+  static final int LEVEL_ERROR   = 3;
+  static final int LEVEL_NONE    = 4;
+
+  private static final String[] LEVEL_NAMES = {
+    "debug",
+    "info",
+    "warning",
+    "error",
+    "none"
+  };
+
+  private static final String[] LEVEL_PREFIXES = {
+    "",
+    "",
+    "WARNING: ",
+    "ERROR: "
+  };
+
+  // repeated messages are tracked in a small table indexed by message hash, collisions just reset a slot
+  private static final long REPEAT_INTERVAL_MILLIS = 1000;
+  private static final int  REPEAT_SLOTS           = 64;
+
+  private final String tag;
+  private volatile int level = LEVEL_INFO;
+
+  // ring buffer of the last records, next is the slot written next
+  private final long[] recordTimes;
+  private final int[] recordLevels;
+  private final String[] recordMessages;
+  private int next = 0;
+  private int size = 0;
+
+  private final String[] repeatMessages = new String[REPEAT_SLOTS];
+  private final long[] repeatTimes = new long[REPEAT_SLOTS];
+  private final int[] repeatCounts = new int[REPEAT_SLOTS];
+
+  PluginLogger(String tag, int capacity) {
+    this.tag = tag;
+    this.recordTimes = new long[capacity];
+    this.recordLevels = new int[capacity];
+    this.recordMessages = new String[capacity];
+  }
+
+  // level of the given name, or -1 if there is none
+  static int levelOf(String name) {
+    for (int i = 0; i < LEVEL_NAMES.length; i++) {
+      if (LEVEL_NAMES[i].equals(name)) {
+        return i;
+      }
+    }
+
+    return -1;
+  }
+
+  // messages below this level are discarded
+  void setLevel(int level) {
+    this.level = level;
+  }
+
+  boolean isLoggable(int level) {
+    return level >= this.level;
+  }
+
+  void log(int level, CallContext call, String message) {
+    log(level, call, message, null);
+  }
+
+  // log a message followed by its detail, call may be null for messages not caused by a Lua call
+  void log(int level, CallContext call, String message, Object detail) {
+    log(level, call, message, detail, null, null);
+  }
+
+  // log a message made of two constant parts each followed by a detail, e.g. "events[", i, "] ", error
+  void log(int level, CallContext call, String message, Object detail, String message2, Object detail2) {
+    if (level < this.level) {
+      return;
+    }
+
+    // the full text is compared to detect repeats, so messages differing only in their details are all logged
+    StringBuilder builder = new StringBuilder(LEVEL_PREFIXES[level]);
+    if (call != null) {
+      builder.append(call.signature).append(", ");
+    }
+    builder.append(message);
+    if (detail != null) {
+      builder.append(detail);
+    }
+    if (message2 != null) {
+      builder.append(message2);
+    }
+    if (detail2 != null) {
+      builder.append(detail2);
+    }
+    String body = builder.toString();
+
+    long now = System.currentTimeMillis();
+    String text;
+
+    synchronized (this) {
+      int slot = body.hashCode() & (REPEAT_SLOTS - 1);
+      int repeats = 0;
+      if (body.equals(repeatMessages[slot])) {
+        if ((now - repeatTimes[slot]) < REPEAT_INTERVAL_MILLIS) {
+          repeatCounts[slot]++;
+          return;
+        }
+        repeats = repeatCounts[slot];
+      }
+      repeatMessages[slot] = body;
+      repeatTimes[slot] = now;
+      repeatCounts[slot] = 0;
+
+      text = (repeats > 0) ? body + " (repeated " + repeats + " more times)" : body;
+
+      recordTimes[next] = now;
+      recordLevels[next] = level;
+      recordMessages[next] = text;
+      next = (next + 1) % recordMessages.length;
+      size = Math.min(size + 1, recordMessages.length);
+    }
+
+    Log.i(tag, text);
+  }
+
+  // messages of the records kept, oldest first
+  synchronized String[] getMessages() {
+    String[] messages = new String[size];
+    int first = (next - size + recordMessages.length) % recordMessages.length;
+    for (int i = 0; i < size; i++) {
+      messages[i] = recordMessages[(first + i) % recordMessages.length];
+    }
+
+    return messages;
+  }
+
+  // push an array of the records kept, oldest first, as { time=seconds, level=name, message=text } tables
+  void push(LuaState L) {
+    synchronized (this) {
+      L.newTable(size, 0);
+      int first = (next - size + recordMessages.length) % recordMessages.length;
+      for (int i = 0; i < size; i++) {
+        int slot = (first + i) % recordMessages.length;
+
+        L.newTable(0, 3);
+        L.pushNumber(recordTimes[slot] / 1000.0);
+        L.setField(-2, "time");
+        L.pushString(LEVEL_NAMES[recordLevels[slot]]);
+        L.setField(-2, "level");
+        L.pushString(recordMessages[slot]);
+        L.setField(-2, "message");
+        L.rawSet(-2, i + 1);
+      }
+    }
+  }
+}
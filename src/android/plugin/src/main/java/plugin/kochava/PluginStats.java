@@ -0,0 +1,202 @@
+//
+// PluginStats.java
+// Kochava Plugin
+//
+// Copyright (c) 2016 CoronaLabs inc. All rights reserved.
+//
+
+// @formatter:off
+
+package plugin.kochava;
+
+import com.naef.jnlua.LuaState;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free counters and latency histograms of the plugin pipeline, reported by kochava.getStats().
+ * <p>
+ * Counters are indexed by the constants below so recording is a single atomic increment from any thread.
+ */
+final class PluginStats
+{
+  // Lua functions
+  static final int CALL_GET_ATTRIBUTION_DATA   = 0;
+  static final int CALL_INIT                   = 1;
+  static final int CALL_LIMIT_AD_TRACKING      = 2;
+  static final int CALL_LOG_DEEPLINK_EVENT     = 3;
+  static final int CALL_LOG_EVENT              = 4;
+  static final int CALL_LOG_EVENTS             = 5;
+  static final int CALL_PREPARE_EVENT          = 6;
+  static final int CALL_LOG_PREPARED_EVENT     = 7;
+  static final int CALL_LOG_CUSTOM_EVENT       = 8;
+  static final int CALL_LOG_STANDARD_EVENT     = 9;
+  static final int CALL_SET_IDENTITY_LINK      = 10;
+  static final int CALL_GET_VERSION            = 11;
+  static final int CALL_SET_HAS_USER_CONSENT   = 12;
+  static final int CALL_GET_QUEUE_STATS        = 13;
+  static final int CALL_GET_STARTUP_TIMINGS    = 14;
+  static final int CALL_GET_STATS              = 15;
+  static final int CALL_INCREMENT              = 16;
+  static final int CALL_GET_LOGS               = 17;
+  static final int CALL_RELEASE_PREPARED_EVENT = 18;
+
+  private static final String[] CALL_NAMES = {
+    "getAttributionData",
+    "init",
+    "limitAdTracking",
+    "logDeeplinkEvent",
+    "logEvent",
+    "logEvents",
+    "prepareEvent",
+    "logPreparedEvent",
+    "logCustomEvent",
+    "logStandardEvent",
+    "setIdentityLink",
+    "getVersion",
+    "setHasUserConsent",
+    "getQueueStats",
+    "getStartupTimings",
+    "getStats",
+    "increment",
+    "getLogs",
+    "releasePreparedEvent"
+  };
+
+  // validation failure reasons
+  static final int FAILURE_ARGUMENT_COUNT             = 0;
+  static final int FAILURE_ARGUMENT_TYPE              = 1;
+  static final int FAILURE_INVALID_OPTION             = 2;
+  static final int FAILURE_NOT_INITIALIZED            = 3;
+  static final int FAILURE_PROPERTY_TYPE              = 4;
+  static final int FAILURE_MISSING_PROPERTIES         = 5;
+  static final int FAILURE_INVALID_DATE               = 6;
+  static final int FAILURE_MISSING_RECEIPT_SIGNATURE  = 7;
+  static final int FAILURE_RESERVED_EVENT_NAME        = 8;
+  static final int FAILURE_UNKNOWN_HANDLE             = 9;
+  static final int FAILURE_PAYLOAD_LIMIT              = 10;
+
+  private static final String[] FAILURE_NAMES = {
+    "argumentCount",
+    "argumentType",
+    "invalidOption",
+    "notInitialized",
+    "propertyType",
+    "missingProperties",
+    "invalidDate",
+    "missingReceiptSignature",
+    "reservedEventName",
+    "unknownHandle",
+    "payloadLimit"
+  };
+
+  // types of events sent to Kochava
+  static final int SENT_STANDARD = 0;
+  static final int SENT_CUSTOM   = 1;
+  static final int SENT_DEEPLINK = 2;
+
+  private static final String[] SENT_NAMES = {
+    "standard",
+    "custom",
+    "deepLink"
+  };
+
+  // reasons events were dropped before being sent
+  static final int DROPPED_PRE_INIT_OVERFLOW = 0;
+  static final int DROPPED_SAMPLED_OUT       = 1;
+  static final int DROPPED_RATE_LIMITED      = 2;
+  static final int DROPPED_DUPLICATE_PURCHASE = 3;
+
+  private static final String[] DROPPED_NAMES = {
+    "preInitOverflow",
+    "sampledOut",
+    "rateLimited",
+    "duplicatePurchase"
+  };
+
+  private final AtomicLongArray calls = new AtomicLongArray(CALL_NAMES.length);
+  private final AtomicLongArray failures = new AtomicLongArray(FAILURE_NAMES.length);
+  private final AtomicLongArray sent = new AtomicLongArray(SENT_NAMES.length);
+  private final AtomicLongArray dropped = new AtomicLongArray(DROPPED_NAMES.length);
+  private final AtomicLong callbacks = new AtomicLong(0);
+
+  // identity links found unchanged (hits) or registered with the tracker (misses)
+  private final AtomicLong identityLinkHits = new AtomicLong(0);
+  private final AtomicLong identityLinkMisses = new AtomicLong(0);
+
+  // time from the Lua call to EventApi.send()
+  private final LatencyHistogram callToSend = new LatencyHistogram();
+
+  void countCall(int function) {
+    calls.incrementAndGet(function);
+  }
+
+  void countFailure(int reason) {
+    failures.incrementAndGet(reason);
+  }
+
+  void countSent(int type) {
+    sent.incrementAndGet(type);
+  }
+
+  void countSent(int type, int count) {
+    sent.addAndGet(type, count);
+  }
+
+  void countDropped(int reason, long count) {
+    dropped.addAndGet(reason, count);
+  }
+
+  void countCallback() {
+    callbacks.incrementAndGet();
+  }
+
+  void countIdentityLink(boolean registered) {
+    (registered ? identityLinkMisses : identityLinkHits).incrementAndGet();
+  }
+
+  // record the time between a Lua call, timed with System.nanoTime(), and the send of its event
+  void recordCallToSend(long callTime) {
+    callToSend.record(System.nanoTime() - callTime);
+  }
+
+  // push the counters and the call-to-send histogram, along with the given command time histogram
+  void push(LuaState L, LatencyHistogram commandTimes, boolean reset) {
+    L.newTable(0, 7);
+
+    pushCounters(L, calls, CALL_NAMES, reset);
+    L.setField(-2, "calls");
+    pushCounters(L, failures, FAILURE_NAMES, reset);
+    L.setField(-2, "validationFailures");
+    pushCounters(L, sent, SENT_NAMES, reset);
+    L.setField(-2, "sent");
+    pushCounters(L, dropped, DROPPED_NAMES, reset);
+    L.setField(-2, "dropped");
+
+    L.pushNumber(reset ? callbacks.getAndSet(0) : callbacks.get());
+    L.setField(-2, "callbacks");
+
+    L.newTable(0, 2);
+    L.pushNumber(reset ? identityLinkHits.getAndSet(0) : identityLinkHits.get());
+    L.setField(-2, "hits");
+    L.pushNumber(reset ? identityLinkMisses.getAndSet(0) : identityLinkMisses.get());
+    L.setField(-2, "misses");
+    L.setField(-2, "identityLinks");
+
+    L.newTable(0, 2);
+    callToSend.push(L, reset);
+    L.setField(-2, "callToSend");
+    commandTimes.push(L, reset);
+    L.setField(-2, "task");
+    L.setField(-2, "latency");
+  }
+
+  private static void pushCounters(LuaState L, AtomicLongArray counters, String[] names, boolean reset) {
+    L.newTable(0, names.length);
+    for (int i = 0; i < names.length; i++) {
+      L.pushNumber(reset ? counters.getAndSet(i, 0) : counters.get(i));
+      L.setField(-2, names[i]);
+    }
+  }
+}
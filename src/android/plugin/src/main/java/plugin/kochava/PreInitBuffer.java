@@ -0,0 +1,111 @@
+//
+// PreInitBuffer.java
+// Kochava Plugin
+//
+// Copyright (c) 2016 CoronaLabs inc. All rights reserved.
+//
+
+// @formatter:off
+
+package plugin.kochava;
+
+/**
+ * Bounded ring buffer of validated commands issued before the Kochava tracker has started.
+ * <p>
+ * The buffer is limited both in number of commands and in approximate bytes. When either limit is reached the
+ * oldest commands are overwritten and counted as overflow. Once the tracker has started the buffer is drained
+ * exactly once; later commands are refused so callers post them to the command queue instead.
+ */
+final class PreInitBuffer
+{
+  private final int maxCommands;
+  private final int maxBytes;
+
+  private final Runnable[] commands;
+  private final int[] sizes;
+  private int head = 0;
+  private int count = 0;
+  private int bytes = 0;
+  private boolean drained = false;
+
+  // overflow metrics
+  private long overflowCount = 0;
+  private long overflowBytes = 0;
+
+  PreInitBuffer(int maxCommands, int maxBytes) {
+    this.maxCommands = maxCommands;
+    this.maxBytes = maxBytes;
+    this.commands = new Runnable[maxCommands];
+    this.sizes = new int[maxCommands];
+  }
+
+  // hold a command until the buffer is drained
+  // returns false if the buffer has already been drained and the command should be run directly
+  synchronized boolean offer(Runnable command, int size) {
+    if (drained) {
+      return false;
+    }
+
+    // commands larger than the whole buffer are dropped
+    if (size > maxBytes) {
+      overflowCount++;
+      overflowBytes += size;
+      return true;
+    }
+
+    // overwrite the oldest commands until the new one fits
+    while ((count == maxCommands) || (bytes + size > maxBytes)) {
+      overflowCount++;
+      overflowBytes += sizes[head];
+      bytes -= sizes[head];
+      commands[head] = null;
+      head = (head + 1) % maxCommands;
+      count--;
+    }
+
+    int tail = (head + count) % maxCommands;
+    commands[tail] = command;
+    sizes[tail] = size;
+    count++;
+    bytes += size;
+
+    return true;
+  }
+
+  // remove all held commands in the order they were offered, refusing any further command
+  synchronized Runnable[] drain() {
+    Runnable[] drainedCommands = new Runnable[count];
+    for (int i = 0; i < count; i++) {
+      int index = (head + i) % maxCommands;
+      drainedCommands[i] = commands[index];
+      commands[index] = null;
+    }
+
+    head = 0;
+    count = 0;
+    bytes = 0;
+    drained = true;
+
+    return drainedCommands;
+  }
+
+  // number of commands currently held
+  synchronized int getCount() {
+    return count;
+  }
+
+  // approximate bytes currently held
+  synchronized int getBytes() {
+    return bytes;
+  }
+
+  // number of commands overwritten or dropped because the buffer was full
+  synchronized long getOverflowCount() {
+    return overflowCount;
+  }
+
+  // approximate bytes of the commands overwritten or dropped
+  synchronized long getOverflowBytes() {
+    return overflowBytes;
+  }
+}
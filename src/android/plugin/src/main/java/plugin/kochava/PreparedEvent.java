@@ -0,0 +1,356 @@
+//
+// PreparedEvent.java
+// Kochava Plugin
+//
+// Copyright (c) 2016 CoronaLabs inc. All rights reserved.
+//
+
+// @formatter:off
+
+package plugin.kochava;
+
+import com.kochava.tracker.events.Event;
+import com.kochava.tracker.events.EventApi;
+import com.kochava.tracker.events.EventType;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+import android.os.Bundle;
+
+/**
+ * Pre-validated event template created by kochava.prepareEvent().
+ * <p>
+ * The base options are decoded and validated once and recorded in primitive arrays. Logging the template replays
+ * the recorded properties onto a new event builder, so only the per-call options have to be decoded from Lua.
+ * <p>
+ * The same recorded form is used to write logged events to the {@link EventJournal}.
+ */
+final class PreparedEvent
+{
+  // kinds of recorded properties
+  private static final byte KIND_STRING         = 0;
+  private static final byte KIND_NUMBER         = 1;
+  private static final byte KIND_BOOLEAN        = 2;
+  private static final byte KIND_CUSTOM_STRING  = 3;
+  private static final byte KIND_CUSTOM_NUMBER  = 4;
+  private static final byte KIND_CUSTOM_BOOLEAN = 5;
+  private static final byte KIND_BUNDLE         = 6;
+
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+  // event name, and Kochava event type for standard event types (null for custom types)
+  final String eventName;
+  final EventType eventType;
+  final boolean isCustomEvent;
+
+  // receipt properties are kept aside so per-call options can complete or replace them
+  final String receiptData;
+  final String dataSignature;
+
+  private final int count;
+  private final byte[] kinds;
+  private final StandardProperty[] properties;
+  private final String[] keys;
+  private final String[] stringValues;
+  private final double[] numberValues;
+  private final boolean[] booleanValues;
+  private final Bundle[] bundleValues;
+
+  private PreparedEvent(String eventName, EventType eventType, boolean isCustomEvent,
+                        String receiptData, String dataSignature, Recorder recorder) {
+    this.eventName = eventName;
+    this.eventType = eventType;
+    this.isCustomEvent = isCustomEvent;
+    this.receiptData = receiptData;
+    this.dataSignature = dataSignature;
+
+    this.count = recorder.count;
+    this.kinds = Arrays.copyOf(recorder.kinds, count);
+    this.properties = Arrays.copyOf(recorder.properties, count);
+    this.keys = Arrays.copyOf(recorder.keys, count);
+    this.stringValues = Arrays.copyOf(recorder.stringValues, count);
+    this.numberValues = Arrays.copyOf(recorder.numberValues, count);
+    this.booleanValues = Arrays.copyOf(recorder.booleanValues, count);
+    this.bundleValues = Arrays.copyOf(recorder.bundleValues, count);
+  }
+
+  // create a new event builder with all the prepared properties applied
+  EventApi newEventApi() {
+    EventApi eventApi;
+    if (eventType != null) {
+      eventApi = Event.buildWithEventType(eventType);
+    }
+    else {
+      eventApi = Event.buildWithEventName(eventName);
+    }
+
+    for (int i = 0; i < count; i++) {
+      switch (kinds[i]) {
+        case KIND_STRING:
+          eventApi = properties[i].setString(eventApi, stringValues[i]);
+          break;
+        case KIND_NUMBER:
+          eventApi = properties[i].setNumber(eventApi, numberValues[i]);
+          break;
+        case KIND_BOOLEAN:
+          eventApi = properties[i].setBoolean(eventApi, booleanValues[i]);
+          break;
+        case KIND_BUNDLE:
+          eventApi = properties[i].setBundle(eventApi, bundleValues[i]);
+          break;
+        case KIND_CUSTOM_STRING:
+          eventApi = eventApi.setCustomStringValue(keys[i], stringValues[i]);
+          break;
+        case KIND_CUSTOM_NUMBER:
+          eventApi = eventApi.setCustomNumberValue(keys[i], numberValues[i]);
+          break;
+        case KIND_CUSTOM_BOOLEAN:
+          eventApi = eventApi.setCustomBoolValue(keys[i], booleanValues[i]);
+          break;
+      }
+    }
+
+    return eventApi;
+  }
+
+  // value of a recorded standard string property, or null if it was not set
+  String getString(StandardProperty property) {
+    for (int i = count - 1; i >= 0; i--) {
+      if ((kinds[i] == KIND_STRING) && (properties[i] == property)) {
+        return stringValues[i];
+      }
+    }
+
+    return null;
+  }
+
+  // write the event in the journal format
+  void writeTo(DataOutput out) throws IOException {
+    writeString(out, eventName);
+    out.writeBoolean(isCustomEvent);
+    writeOptionalString(out, receiptData);
+    writeOptionalString(out, dataSignature);
+
+    out.writeInt(count);
+    for (int i = 0; i < count; i++) {
+      out.writeByte(kinds[i]);
+      switch (kinds[i]) {
+        case KIND_STRING:
+          writeString(out, properties[i].name);
+          writeString(out, stringValues[i]);
+          break;
+        case KIND_NUMBER:
+          writeString(out, properties[i].name);
+          out.writeDouble(numberValues[i]);
+          break;
+        case KIND_BOOLEAN:
+          writeString(out, properties[i].name);
+          out.writeBoolean(booleanValues[i]);
+          break;
+        case KIND_BUNDLE:
+          writeString(out, properties[i].name);
+          PayloadConverter.writeBundle(out, bundleValues[i]);
+          break;
+        case KIND_CUSTOM_STRING:
+          writeString(out, keys[i]);
+          writeString(out, stringValues[i]);
+          break;
+        case KIND_CUSTOM_NUMBER:
+          writeString(out, keys[i]);
+          out.writeDouble(numberValues[i]);
+          break;
+        case KIND_CUSTOM_BOOLEAN:
+          writeString(out, keys[i]);
+          out.writeBoolean(booleanValues[i]);
+          break;
+      }
+    }
+  }
+
+  // read an event written by writeTo()
+  static PreparedEvent readFrom(DataInput in) throws IOException {
+    String eventName = readString(in);
+    boolean isCustomEvent = in.readBoolean();
+    String receiptData = readOptionalString(in);
+    String dataSignature = readOptionalString(in);
+
+    Recorder recorder = new Recorder();
+    int count = in.readInt();
+    for (int i = 0; i < count; i++) {
+      byte kind = in.readByte();
+      String name = readString(in);
+
+      switch (kind) {
+        case KIND_STRING:
+          recorder.setString(standardProperty(name), readString(in));
+          break;
+        case KIND_NUMBER:
+          recorder.setNumber(standardProperty(name), in.readDouble());
+          break;
+        case KIND_BOOLEAN:
+          recorder.setBoolean(standardProperty(name), in.readBoolean());
+          break;
+        case KIND_BUNDLE:
+          recorder.setBundle(standardProperty(name), PayloadConverter.readBundle(in));
+          break;
+        case KIND_CUSTOM_STRING:
+          recorder.setCustomString(name, readString(in));
+          break;
+        case KIND_CUSTOM_NUMBER:
+          recorder.setCustomNumber(name, in.readDouble());
+          break;
+        case KIND_CUSTOM_BOOLEAN:
+          recorder.setCustomBoolean(name, in.readBoolean());
+          break;
+        default:
+          throw new IOException("Unknown property kind " + kind);
+      }
+    }
+
+    return recorder.build(eventName, StandardEventSchema.eventType(eventName), isCustomEvent, receiptData, dataSignature);
+  }
+
+  private static StandardProperty standardProperty(String name) throws IOException {
+    StandardProperty property = StandardEventSchema.property(name);
+    if (property == null) {
+      throw new IOException("Unknown standard property " + name);
+    }
+
+    return property;
+  }
+
+  // strings are written as an int length and UTF-8 bytes, as writeUTF() is limited to 64 KB and receipts can be longer
+  static void writeString(DataOutput out, String value) throws IOException {
+    byte[] bytes = value.getBytes(UTF_8);
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  static String readString(DataInput in) throws IOException {
+    int length = in.readInt();
+    if (length < 0) {
+      throw new IOException("Invalid string length " + length);
+    }
+
+    byte[] bytes = new byte[length];
+    in.readFully(bytes);
+    return new String(bytes, UTF_8);
+  }
+
+  private static void writeOptionalString(DataOutput out, String value) throws IOException {
+    out.writeBoolean(value != null);
+    if (value != null) {
+      writeString(out, value);
+    }
+  }
+
+  private static String readOptionalString(DataInput in) throws IOException {
+    return in.readBoolean() ? readString(in) : null;
+  }
+
+  /**
+   * Records decoded properties in order until the template is built.
+   */
+  static final class Recorder implements EventSink {
+    private int count = 0;
+    private byte[] kinds = new byte[8];
+    private StandardProperty[] properties = new StandardProperty[8];
+    private String[] keys = new String[8];
+    private String[] stringValues = new String[8];
+    private double[] numberValues = new double[8];
+    private boolean[] booleanValues = new boolean[8];
+    private Bundle[] bundleValues = new Bundle[8];
+
+    Recorder() {
+    }
+
+    // start from the properties of a prepared event
+    Recorder(PreparedEvent base) {
+      int capacity = Math.max(8, base.count * 2);
+
+      count = base.count;
+      kinds = Arrays.copyOf(base.kinds, capacity);
+      properties = Arrays.copyOf(base.properties, capacity);
+      keys = Arrays.copyOf(base.keys, capacity);
+      stringValues = Arrays.copyOf(base.stringValues, capacity);
+      numberValues = Arrays.copyOf(base.numberValues, capacity);
+      booleanValues = Arrays.copyOf(base.booleanValues, capacity);
+      bundleValues = Arrays.copyOf(base.bundleValues, capacity);
+    }
+
+    PreparedEvent build(String eventName, EventType eventType, boolean isCustomEvent,
+                        String receiptData, String dataSignature) {
+      return new PreparedEvent(eventName, eventType, isCustomEvent, receiptData, dataSignature, this);
+    }
+
+    @Override
+    public void setString(StandardProperty property, String value) {
+      int i = add(KIND_STRING);
+      properties[i] = property;
+      stringValues[i] = value;
+    }
+
+    @Override
+    public void setNumber(StandardProperty property, double value) {
+      int i = add(KIND_NUMBER);
+      properties[i] = property;
+      numberValues[i] = value;
+    }
+
+    @Override
+    public void setBoolean(StandardProperty property, boolean value) {
+      int i = add(KIND_BOOLEAN);
+      properties[i] = property;
+      booleanValues[i] = value;
+    }
+
+    @Override
+    public void setBundle(StandardProperty property, Bundle value) {
+      int i = add(KIND_BUNDLE);
+      properties[i] = property;
+      bundleValues[i] = value;
+    }
+
+    @Override
+    public void setCustomString(String key, String value) {
+      int i = add(KIND_CUSTOM_STRING);
+      keys[i] = key;
+      stringValues[i] = value;
+    }
+
+    @Override
+    public void setCustomNumber(String key, double value) {
+      int i = add(KIND_CUSTOM_NUMBER);
+      keys[i] = key;
+      numberValues[i] = value;
+    }
+
+    @Override
+    public void setCustomBoolean(String key, boolean value) {
+      int i = add(KIND_CUSTOM_BOOLEAN);
+      keys[i] = key;
+      booleanValues[i] = value;
+    }
+
+    // reserve the next slot, growing the arrays if needed
+    private int add(byte kind) {
+      if (count == kinds.length) {
+        int capacity = count * 2;
+        kinds = Arrays.copyOf(kinds, capacity);
+        properties = Arrays.copyOf(properties, capacity);
+        keys = Arrays.copyOf(keys, capacity);
+        stringValues = Arrays.copyOf(stringValues, capacity);
+        numberValues = Arrays.copyOf(numberValues, capacity);
+        booleanValues = Arrays.copyOf(booleanValues, capacity);
+        bundleValues = Arrays.copyOf(bundleValues, capacity);
+      }
+
+      kinds[count] = kind;
+      return count++;
+    }
+  }
+}
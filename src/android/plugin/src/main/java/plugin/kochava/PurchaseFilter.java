@@ -0,0 +1,182 @@
+//
+// PurchaseFilter.java
+// Kochava Plugin
+//
+// Copyright (c) 2016 CoronaLabs inc. All rights reserved.
+//
+
+// @formatter:off
+
+package plugin.kochava;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Recently sent purchases, used to drop purchase events replayed by the store flow.
+ * <p>
+ * Purchases are identified by a 64-bit hash of their order ID, taken from the Google Play receipt when it is not
+ * passed, or else of their receipt ID or receipt data. The most recently used hashes are kept in a fixed-size LRU
+ * and saved to a small file, so repeats are also detected across launches. The file is read and written on the
+ * plugin's file thread, or read by the first check if it comes first.
+ */
+final class PurchaseFilter
+{
+  private static final int MAGIC = 0x4b564446; // "KVDF"
+
+  // kinds of purchase identifiers, so equal values of different kinds have different keys
+  static final char KIND_ORDER_ID     = 'o';
+  static final char KIND_RECEIPT_ID   = 'r';
+  static final char KIND_RECEIPT_DATA = 'd';
+
+  private final File file;
+  private final LinkedHashMap<Long, Boolean> recent;
+  private boolean loaded = false;
+
+  PurchaseFilter(File file, final int capacity) {
+    this.file = file;
+    this.recent = new LinkedHashMap<Long, Boolean>(capacity, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<Long, Boolean> eldest) {
+        return size() > capacity;
+      }
+    };
+  }
+
+  // 64-bit FNV-1a hash of a purchase identifier, never 0
+  static long keyOf(char kind, String value) {
+    long hash = 0xcbf29ce484222325L;
+    hash = (hash ^ kind) * 0x100000001b3L;
+    for (int i = 0; i < value.length(); i++) {
+      hash = (hash ^ value.charAt(i)) * 0x100000001b3L;
+    }
+
+    return (hash != 0) ? hash : 1;
+  }
+
+  // key of a purchase, the same whichever API sent it, or 0 if it has no identifier
+  // the order ID is preferred, then the order ID of the Google Play receipt, then the receipt ID, then the receipt data
+  static long keyOf(String orderId, String receiptId, String receiptData) {
+    if (orderId != null) {
+      return keyOf(KIND_ORDER_ID, orderId);
+    }
+
+    String receiptOrderId = orderIdOf(receiptData);
+    if (receiptOrderId != null) {
+      return keyOf(KIND_ORDER_ID, receiptOrderId);
+    }
+    else if (receiptId != null) {
+      return keyOf(KIND_RECEIPT_ID, receiptId);
+    }
+    else if (receiptData != null) {
+      return keyOf(KIND_RECEIPT_DATA, receiptData);
+    }
+
+    return 0;
+  }
+
+  // order ID of a Google Play receipt, or null if there is none
+  private static String orderIdOf(String receiptData) {
+    if ((receiptData == null) || (receiptData.indexOf("\"orderId\"") < 0)) {
+      return null;
+    }
+
+    try {
+      String orderId = new JSONObject(receiptData).optString("orderId");
+      return (orderId.length() > 0) ? orderId : null;
+    }
+    catch (JSONException ex) {
+      return null;
+    }
+  }
+
+  // returns true if a purchase with this key was sent recently
+  synchronized boolean contains(long key) {
+    load();
+    return recent.get(key) != null;
+  }
+
+  // remember a purchase which is being sent
+  synchronized void add(long key) {
+    load();
+    recent.put(key, Boolean.TRUE);
+  }
+
+  // save the remembered purchases, least recently used first
+  void save() {
+    long[] keys;
+    synchronized (this) {
+      keys = new long[recent.size()];
+      int i = 0;
+      for (Long key: recent.keySet()) {
+        keys[i++] = key;
+      }
+    }
+
+    // write to a temporary file first so a partial write never replaces a good copy
+    File temp = new File(file.getPath() + ".tmp");
+    try {
+      DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)));
+      try {
+        out.writeInt(MAGIC);
+        out.writeInt(keys.length);
+        for (long key: keys) {
+          out.writeLong(key);
+        }
+      }
+      finally {
+        out.close();
+      }
+
+      if (! temp.renameTo(file)) {
+        temp.delete();
+      }
+    }
+    catch (IOException ex) {
+      ex.printStackTrace();
+    }
+  }
+
+  // read the purchases saved by a previous run, once
+  synchronized void load() {
+    if (loaded) {
+      return;
+    }
+    loaded = true;
+
+    if (! file.exists()) {
+      return;
+    }
+
+    try {
+      DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+      try {
+        if (in.readInt() != MAGIC) {
+          return;
+        }
+
+        int count = in.readInt();
+        for (int i = 0; i < count; i++) {
+          recent.put(in.readLong(), Boolean.TRUE);
+        }
+      }
+      finally {
+        in.close();
+      }
+    }
+    catch (IOException ex) {
+      ex.printStackTrace();
+    }
+  }
+}
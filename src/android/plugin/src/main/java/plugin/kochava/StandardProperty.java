@@ -0,0 +1,112 @@
+//
+// StandardProperty.java
+// Kochava Plugin
+//
+// Copyright (c) 2016 CoronaLabs inc. All rights reserved.
+//
+
+// @formatter:off
+
+package plugin.kochava;
+
+import com.kochava.tracker.events.EventApi;
+import com.naef.jnlua.LuaType;
+
+import android.os.Bundle;
+
+/**
+ * Describes a standard property: its name, the type of value it holds and the setter applying it to an event.
+ * <p>
+ * The standard properties themselves are listed in schema/standard_events.schema and generated into
+ * {@link StandardEventSchema} at build time.
+ */
+final class StandardProperty
+{
+  // kind of value a standard property holds
+  enum ValueType {
+    STRING(LuaType.STRING, "string"),
+    BOOLEAN(LuaType.BOOLEAN, "boolean"),
+    NUMBER(LuaType.NUMBER, "number"),
+    DATE(LuaType.STRING, "string"),
+    TABLE(LuaType.TABLE, "table");
+
+    // Lua type the value must have and its name for error messages
+    final LuaType luaType;
+    final String luaTypeName;
+
+    ValueType(LuaType luaType, String luaTypeName) {
+      this.luaType = luaType;
+      this.luaTypeName = luaTypeName;
+    }
+  }
+
+  interface StringSetter {
+    EventApi set(EventApi eventApi, String value);
+  }
+
+  interface NumberSetter {
+    EventApi set(EventApi eventApi, double value);
+  }
+
+  interface BooleanSetter {
+    EventApi set(EventApi eventApi, boolean value);
+  }
+
+  interface BundleSetter {
+    EventApi set(EventApi eventApi, Bundle value);
+  }
+
+  final String name;
+  final ValueType valueType;
+
+  private final StringSetter stringSetter;
+  private final NumberSetter numberSetter;
+  private final BooleanSetter booleanSetter;
+  private final BundleSetter bundleSetter;
+
+  private StandardProperty(String name, ValueType valueType, StringSetter stringSetter,
+                           NumberSetter numberSetter, BooleanSetter booleanSetter, BundleSetter bundleSetter) {
+    this.name = name;
+    this.valueType = valueType;
+    this.stringSetter = stringSetter;
+    this.numberSetter = numberSetter;
+    this.booleanSetter = booleanSetter;
+    this.bundleSetter = bundleSetter;
+  }
+
+  static StandardProperty string(String name, StringSetter setter) {
+    return new StandardProperty(name, ValueType.STRING, setter, null, null, null);
+  }
+
+  static StandardProperty date(String name, StringSetter setter) {
+    return new StandardProperty(name, ValueType.DATE, setter, null, null, null);
+  }
+
+  static StandardProperty number(String name, NumberSetter setter) {
+    return new StandardProperty(name, ValueType.NUMBER, null, setter, null, null);
+  }
+
+  static StandardProperty bool(String name, BooleanSetter setter) {
+    return new StandardProperty(name, ValueType.BOOLEAN, null, null, setter, null);
+  }
+
+  static StandardProperty table(String name, BundleSetter setter) {
+    return new StandardProperty(name, ValueType.TABLE, null, null, null, setter);
+  }
+
+  EventApi setString(EventApi eventApi, String value) {
+    return stringSetter.set(eventApi, value);
+  }
+
+  EventApi setNumber(EventApi eventApi, double value) {
+    return numberSetter.set(eventApi, value);
+  }
+
+  EventApi setBoolean(EventApi eventApi, boolean value) {
+    return booleanSetter.set(eventApi, value);
+  }
+
+  EventApi setBundle(EventApi eventApi, Bundle value) {
+    return bundleSetter.set(eventApi, value);
+  }
+}
@@ -0,0 +1,101 @@
+//
+// StartupTimings.java
+// Kochava Plugin
+//
+// Copyright (c) 2016 CoronaLabs inc. All rights reserved.
+//
+
+// @formatter:off
+
+package plugin.kochava;
+
+import android.os.Build;
+import android.os.Trace;
+
+import com.naef.jnlua.LuaState;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Monotonic timestamps of the phases of kochava.init().
+ * <p>
+ * Phases may begin and end on different threads (the Lua thread and the tracker thread), so timestamps are kept
+ * in atomic arrays. Phases which begin and end on the same thread are also reported as {@link Trace} sections.
+ */
+final class StartupTimings
+{
+  static final int PARSE_OPTIONS              = 0;
+  static final int QUEUE_WAIT                 = 1;
+  static final int ADVANCED_INSTRUCTION       = 2;
+  static final int LOAD_ATTRIBUTION           = 3;
+  static final int RETRIEVE_ATTRIBUTION       = 4;
+  static final int OPEN_EVENT_JOURNAL         = 5;
+  static final int START_WITH_APP_GUID        = 6;
+  static final int REPLAY_EVENT_JOURNAL       = 7;
+  static final int DRAIN_PRE_INIT_BUFFER      = 8;
+  static final int GET_DEVICE_ID              = 9;
+
+  // phase names as reported to Lua and in trace sections
+  private static final String[] NAMES = {
+    "parseOptions",
+    "queueWait",
+    "executeAdvancedInstruction",
+    "loadAttribution",
+    "retrieveInstallAttribution",
+    "openEventJournal",
+    "startWithAppGuid",
+    "replayEventJournal",
+    "drainPreInitBuffer",
+    "getDeviceId"
+  };
+
+  private static final String TRACE_PREFIX = "Kochava:";
+  private static final String TOTAL_KEY    = "total";
+
+  private final AtomicLongArray starts = new AtomicLongArray(NAMES.length);
+  private final AtomicLongArray ends = new AtomicLongArray(NAMES.length);
+
+  // record the start of a phase, opening a trace section if it ends on the same thread
+  void begin(int phase, boolean trace) {
+    if (trace && (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2)) {
+      Trace.beginSection(TRACE_PREFIX + NAMES[phase]);
+    }
+    starts.set(phase, System.nanoTime());
+  }
+
+  // record the end of a phase, closing its trace section if one was opened
+  void end(int phase, boolean trace) {
+    ends.set(phase, System.nanoTime());
+    if (trace && (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2)) {
+      Trace.endSection();
+    }
+  }
+
+  // push a table of phase durations in milliseconds, omitting phases which have not completed
+  void push(LuaState L) {
+    L.newTable(0, NAMES.length + 1);
+
+    long first = 0;
+    long last = 0;
+    for (int phase = 0; phase < NAMES.length; phase++) {
+      long start = starts.get(phase);
+      long end = ends.get(phase);
+      if ((start == 0) || (end == 0)) {
+        continue;
+      }
+
+      L.pushNumber((end - start) / 1000000.0);
+      L.setField(-2, NAMES[phase]);
+
+      if ((first == 0) || (start < first)) {
+        first = start;
+      }
+      last = Math.max(last, end);
+    }
+
+    if (first != 0) {
+      L.pushNumber((last - first) / 1000000.0);
+      L.setField(-2, TOTAL_KEY);
+    }
+  }
+}
@@ -0,0 +1,102 @@
+//
+// DateValidatorTest.java
+// Kochava Plugin
+//
+// Copyright (c) 2016 CoronaLabs inc. All rights reserved.
+//
+
+// @formatter:off
+
+package plugin.kochava;
+
+import org.junit.Test;
+
+import java.text.DateFormat;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Locale;
+import java.util.TimeZone;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * Compares {@link DateValidator} with the non-lenient {@code SimpleDateFormat} it replaces.
+ * <p>
+ * The reference format is in UTC so a time zone skipping midnight cannot reject a date the calendar accepts.
+ */
+public class DateValidatorTest
+{
+  private final DateFormat format = newReferenceFormat();
+
+  private static DateFormat newReferenceFormat() {
+    DateFormat format = new SimpleDateFormat("yyyy-MM-dd", Locale.ENGLISH);
+    format.setLenient(false);
+    format.setTimeZone(TimeZone.getTimeZone("UTC"));
+    return format;
+  }
+
+  private boolean isValidReference(String date) {
+    try {
+      format.parse(date);
+    }
+    catch (ParseException e) {
+      return false;
+    }
+
+    return true;
+  }
+
+  private void assertSameAsReference(String date) {
+    if (DateValidator.isValid(date) != isValidReference(date)) {
+      fail("\"" + date + "\": DateValidator returned " + DateValidator.isValid(date));
+    }
+  }
+
+  // every canonical year, with months 00-13 and days 00-32 so both sides of every bound are checked
+  @Test
+  public void canonicalDatesMatchSimpleDateFormat() {
+    char[] date = "0000-00-00".toCharArray();
+    for (int year = 0; year <= 9999; year++) {
+      date[0] = (char) ('0' + (year / 1000));
+      date[1] = (char) ('0' + ((year / 100) % 10));
+      date[2] = (char) ('0' + ((year / 10) % 10));
+      date[3] = (char) ('0' + (year % 10));
+      for (int month = 0; month <= 13; month++) {
+        date[5] = (char) ('0' + (month / 10));
+        date[6] = (char) ('0' + (month % 10));
+        for (int day = 0; day <= 32; day++) {
+          date[8] = (char) ('0' + (day / 10));
+          date[9] = (char) ('0' + (day % 10));
+          assertSameAsReference(new String(date));
+        }
+      }
+    }
+  }
+
+  @Test
+  public void gregorianCutoverMatchesSimpleDateFormat() {
+    for (int day = 1; day <= 31; day++) {
+      assertSameAsReference(String.format(Locale.ENGLISH, "1582-10-%02d", day));
+    }
+    assertEquals(true, DateValidator.isValid("1582-10-04"));
+    assertEquals(false, DateValidator.isValid("1582-10-05"));
+    assertEquals(false, DateValidator.isValid("1582-10-14"));
+    assertEquals(true, DateValidator.isValid("1582-10-15"));
+  }
+
+  // forms handed to SimpleDateFormat, checked so the fast path never claims one of them
+  @Test
+  public void nonCanonicalDatesMatchSimpleDateFormat() {
+    String[] dates = {
+      "", "-", "2020", "2020-01", "2020-1-1", "2020-01-1", "2020-1-01", "20-01-01", "020-01-01", "12020-01-01",
+      "2020-001-01", "2020-01-001", "2020/01/01", "2020-01-01 ", " 2020-01-01", "2020-01-01x", "2020-02-30",
+      "+2020-01-01", "-2020-01-01", "2020-+1-01", "2020-01-+1", "2020-0a-01", "2020-01-0a", "202a-01-01",
+      "2020-00-01", "2020-13-01", "2020-01-00", "2020-01-32", "0000-01-01", "0001-01-01", "99999-12-31",
+      "\u0662\u0660\u0662\u0660-01-01", "\uff12\uff10\uff12\uff10-01-01", "2020\u201001\u201001"
+    };
+    for (String date: dates) {
+      assertSameAsReference(date);
+    }
+  }
+}
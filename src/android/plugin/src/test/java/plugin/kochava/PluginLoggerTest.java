@@ -0,0 +1,60 @@
+//
+// PluginLoggerTest.java
+// Kochava Plugin
+//
+// Copyright (c) 2016 CoronaLabs inc. All rights reserved.
+//
+
+// @formatter:off
+
+package plugin.kochava;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Checks that {@link PluginLogger} only counts messages whose whole text repeats, details included.
+ */
+public class PluginLoggerTest
+{
+  private final CallContext call = new CallContext(PluginStats.CALL_LOG_EVENTS, "kochava.logEvents(events)");
+
+  @Test
+  public void distinctErrorsWithTheSamePrefixAreAllLogged() {
+    PluginLogger logger = new PluginLogger("test", 10);
+    logger.log(PluginLogger.LEVEL_ERROR, call, "events[", 1, "] ", "eventType (string) expected, got nil");
+    logger.log(PluginLogger.LEVEL_ERROR, call, "events[", 2, "] ", "options table expected, got number");
+    logger.log(PluginLogger.LEVEL_ERROR, call, "Expected 1 argument, got ", 2);
+    logger.log(PluginLogger.LEVEL_ERROR, call, "Expected 1 argument, got ", 3);
+
+    String[] messages = logger.getMessages();
+    assertEquals(4, messages.length);
+    assertEquals("ERROR: kochava.logEvents(events), events[1] eventType (string) expected, got nil", messages[0]);
+    assertEquals("ERROR: kochava.logEvents(events), events[2] options table expected, got number", messages[1]);
+    assertEquals("ERROR: kochava.logEvents(events), Expected 1 argument, got 2", messages[2]);
+    assertEquals("ERROR: kochava.logEvents(events), Expected 1 argument, got 3", messages[3]);
+  }
+
+  @Test
+  public void identicalMessagesAreCounted() {
+    PluginLogger logger = new PluginLogger("test", 10);
+    for (int i = 0; i < 5; i++) {
+      logger.log(PluginLogger.LEVEL_ERROR, call, "events[", 1, "] ", "eventType (string) expected, got nil");
+    }
+
+    assertEquals(1, logger.getMessages().length);
+  }
+
+  @Test
+  public void messagesBelowTheLevelAreDiscarded() {
+    PluginLogger logger = new PluginLogger("test", 10);
+    logger.setLevel(PluginLogger.LEVEL_WARNING);
+    logger.log(PluginLogger.LEVEL_INFO, null, "info");
+    logger.log(PluginLogger.LEVEL_WARNING, null, "warning");
+
+    String[] messages = logger.getMessages();
+    assertEquals(1, messages.length);
+    assertEquals("WARNING: warning", messages[0]);
+  }
+}